@@ -55,6 +55,7 @@ import java.io.File;
 import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import jenkins.MasterToSlaveFileCallable;
 
@@ -100,6 +101,15 @@ public final class SubversionChangeLogBuilder {
     }
 
     public boolean run(@NonNull Map<String, List<SubversionSCM.External>> externalsMap, Result changeLog) throws IOException, InterruptedException {
+        return run(externalsMap, null, changeLog);
+    }
+
+    /**
+     * @param contexts the contexts of the locations and externals already obtained from the workspace, keyed by path
+     *                 relative to the workspace, or {@code null} to obtain them from the workspace.
+     */
+    boolean run(@NonNull Map<String, List<SubversionSCM.External>> externalsMap, @CheckForNull Map<String, PathContext> contexts,
+                Result changeLog) throws IOException, InterruptedException {
         boolean changelogFileCreated = false;
 
         TransformerHandler th = createTransformerHandler();
@@ -117,7 +127,7 @@ public final class SubversionChangeLogBuilder {
             final SVNClientManager manager = SubversionSCM.createClientManager(authProvider, SubversionSCM.descriptor().isStoreAuthToDisk(), SubversionSCM.descriptor().getWorkspaceFormat()).getCore();
             try {
                 SVNLogClient svnlc = manager.getLogClient();
-                PathContext context = getUrlForPath(workspace.child(l.getLocalDir()), authProvider);
+                PathContext context = getContext(contexts, l.getLocalDir(), authProvider);
                 context.moduleWorkspacePath = l.getLocalDir();
                 changelogFileCreated |= buildModule(context, svnlc, logHandler);
 
@@ -125,7 +135,7 @@ public final class SubversionChangeLogBuilder {
                 List<SubversionSCM.External> externals = externalsMap.get(l.remote);
                 if (externals != null) {
                   for (SubversionSCM.External ext : externals) {
-                    PathContext extContext = getUrlForPath(workspace.child(ext.path), authProvider);
+                    PathContext extContext = getContext(contexts, ext.path, authProvider);
                     extContext.moduleWorkspacePath = ext.path;
                     changelogFileCreated |= buildModule(extContext, svnlc, logHandler);
                   }
@@ -142,10 +152,25 @@ public final class SubversionChangeLogBuilder {
         return changelogFileCreated;
     }
 
+    private PathContext getContext(@CheckForNull Map<String, PathContext> contexts, String path,
+                                   ISVNAuthenticationProvider authProvider) throws IOException, InterruptedException {
+        PathContext context = contexts == null ? null : contexts.get(path);
+        return context != null ? context : getUrlForPath(workspace.child(path), authProvider);
+    }
+
     private PathContext getUrlForPath(FilePath path, ISVNAuthenticationProvider authProvider) throws IOException, InterruptedException {
         return path.act(new GetContextForPath(authProvider));
     }
 
+    /**
+     * Creates the context of a working copy from its information.
+     */
+    static PathContext createContext(SVNInfo info) {
+        String url = info.getURL().toDecodedString();
+        String repoRoot = info.getRepositoryRootURL().toDecodedString();
+        return new PathContext(url, repoRoot, null);
+    }
+
     private boolean buildModule(PathContext context, SVNLogClient svnlc, DirAwareSVNXMLLogHandler logHandler) throws IOException {
         String url = context.url;
         PrintStream logger = listener.getLogger();
@@ -261,9 +286,7 @@ public final class SubversionChangeLogBuilder {
                 SVNInfo info;
                 try {
                     info = svnwc.doInfo(p, SVNRevision.WORKING);
-                    String url = info.getURL().toDecodedString();
-                    String repoRoot = info.getRepositoryRootURL().toDecodedString();
-                    return new PathContext(url, repoRoot, null);
+                    return createContext(info);
                 } catch (SVNException e) {
                     e.printStackTrace();
                     return null;
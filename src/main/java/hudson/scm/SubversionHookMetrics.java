@@ -0,0 +1,396 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.scm;
+
+import hudson.Extension;
+import jenkins.scm.impl.subversion.MetricsManagementLink;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Timings and match counts of the post-commit hook notifications received by {@link SubversionRepositoryStatus}.
+ * <p>
+ * Three phases are timed for every notification:
+ * <ul>
+ *     <li><em>parse</em>: from receipt of the request until its payload has been parsed;</li>
+ *     <li><em>match</em>: from the end of parsing until a job or source has been found to match;</li>
+ *     <li><em>trigger</em>: from the match until {@code SCMTrigger.run} or {@code onSCMSourceUpdated} returned.</li>
+ * </ul>
+ * Timings are kept as rolling histograms over the last {@link #WINDOW} samples, counters are cumulative since startup.
+ * Both are shown on a management page and exported through its {@code api}.
+ */
+@ExportedBean
+public final class SubversionHookMetrics {
+
+    /**
+     * Number of samples retained by each rolling histogram.
+     */
+    public static final int WINDOW = Integer.getInteger(SubversionHookMetrics.class.getName() + ".window", 1024);
+
+    private static final SubversionHookMetrics INSTANCE = new SubversionHookMetrics(WINDOW);
+
+    /**
+     * The notification being processed by the current request thread, listeners are called synchronously.
+     */
+    private static final ThreadLocal<Notification> CURRENT = new ThreadLocal<>();
+
+    private final Histogram parse;
+    private final Histogram match;
+    private final Histogram trigger;
+
+    private final AtomicLong notifications = new AtomicLong();
+    private final AtomicLong jobsExamined = new AtomicLong();
+    private final AtomicLong jobsMatched = new AtomicLong();
+    private final AtomicLong jobsSkipped = new AtomicLong();
+    private final AtomicLong sourcesExamined = new AtomicLong();
+    private final AtomicLong sourcesMatched = new AtomicLong();
+    private final AtomicLong sourcesSkipped = new AtomicLong();
+    private final AtomicLong uuidCacheHits = new AtomicLong();
+    private final AtomicLong uuidCacheMisses = new AtomicLong();
+
+    SubversionHookMetrics(int window) {
+        parse = new Histogram(window);
+        match = new Histogram(window);
+        trigger = new Histogram(window);
+    }
+
+    @NonNull
+    public static SubversionHookMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Marks the receipt of a notification by the current thread.
+     *
+     * @return the notification, to be closed once the request has been handled.
+     */
+    @Restricted(NoExternalUse.class)
+    public static Notification received() {
+        Notification notification = new Notification(INSTANCE, System.nanoTime());
+        CURRENT.set(notification);
+        INSTANCE.notifications.incrementAndGet();
+        return notification;
+    }
+
+    /**
+     * Records that a job matched the current notification.
+     *
+     * @return the time of the match, to be passed to {@link #triggered(long)}.
+     */
+    @Restricted(NoExternalUse.class)
+    public long jobMatched() {
+        jobsMatched.incrementAndGet();
+        return matched();
+    }
+
+    /**
+     * Records that a multibranch source matched the current notification.
+     *
+     * @return the time of the match, to be passed to {@link #triggered(long)}.
+     */
+    @Restricted(NoExternalUse.class)
+    public long sourceMatched() {
+        sourcesMatched.incrementAndGet();
+        return matched();
+    }
+
+    private long matched() {
+        long now = System.nanoTime();
+        Notification notification = CURRENT.get();
+        if (notification != null && notification.parsedNanos != 0) {
+            match.record(now - notification.parsedNanos);
+        }
+        return now;
+    }
+
+    /**
+     * Records that the job or source matched at the supplied time has been triggered.
+     *
+     * @param matchedNanos the value returned by {@link #jobMatched()} or {@link #sourceMatched()}.
+     */
+    @Restricted(NoExternalUse.class)
+    public void triggered(long matchedNanos) {
+        trigger.record(System.nanoTime() - matchedNanos);
+    }
+
+    @Restricted(NoExternalUse.class)
+    public void jobExamined() {
+        jobsExamined.incrementAndGet();
+    }
+
+    @Restricted(NoExternalUse.class)
+    public void jobSkipped() {
+        jobsSkipped.incrementAndGet();
+    }
+
+    @Restricted(NoExternalUse.class)
+    public void sourceExamined() {
+        sourcesExamined.incrementAndGet();
+    }
+
+    @Restricted(NoExternalUse.class)
+    public void sourceSkipped() {
+        sourcesSkipped.incrementAndGet();
+    }
+
+    @Restricted(NoExternalUse.class)
+    public void uuidCacheHit() {
+        uuidCacheHits.incrementAndGet();
+    }
+
+    @Restricted(NoExternalUse.class)
+    public void uuidCacheMiss() {
+        uuidCacheMisses.incrementAndGet();
+    }
+
+    @Exported
+    public Histogram getParse() {
+        return parse;
+    }
+
+    @Exported
+    public Histogram getMatch() {
+        return match;
+    }
+
+    @Exported
+    public Histogram getTrigger() {
+        return trigger;
+    }
+
+    @Exported
+    public long getNotifications() {
+        return notifications.get();
+    }
+
+    @Exported
+    public long getJobsExamined() {
+        return jobsExamined.get();
+    }
+
+    @Exported
+    public long getJobsMatched() {
+        return jobsMatched.get();
+    }
+
+    @Exported
+    public long getJobsSkipped() {
+        return jobsSkipped.get();
+    }
+
+    @Exported
+    public long getSourcesExamined() {
+        return sourcesExamined.get();
+    }
+
+    @Exported
+    public long getSourcesMatched() {
+        return sourcesMatched.get();
+    }
+
+    @Exported
+    public long getSourcesSkipped() {
+        return sourcesSkipped.get();
+    }
+
+    @Exported
+    public long getUuidCacheHits() {
+        return uuidCacheHits.get();
+    }
+
+    @Exported
+    public long getUuidCacheMisses() {
+        return uuidCacheMisses.get();
+    }
+
+    /**
+     * A notification being processed.
+     */
+    @Restricted(NoExternalUse.class)
+    public static final class Notification implements AutoCloseable {
+        private final SubversionHookMetrics metrics;
+        private final long receivedNanos;
+        private long parsedNanos;
+
+        private Notification(SubversionHookMetrics metrics, long receivedNanos) {
+            this.metrics = metrics;
+            this.receivedNanos = receivedNanos;
+        }
+
+        /**
+         * Marks the end of parsing of the notification payload.
+         */
+        public void parsed() {
+            parsedNanos = System.nanoTime();
+            metrics.parse.record(parsedNanos - receivedNanos);
+        }
+
+        @Override
+        public void close() {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * A histogram of durations over a rolling window of the most recent samples.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static final class Histogram {
+
+        /**
+         * Upper bounds of the buckets, in milliseconds. The last bucket is unbounded.
+         */
+        private static final long[] BUCKET_BOUNDS = {1, 5, 10, 50, 100, 500, 1000, 5000, 10000, 60000};
+
+        private final long[] samples;
+        private int next;
+        private long count;
+
+        Histogram(int window) {
+            samples = new long[Math.max(1, window)];
+        }
+
+        synchronized void record(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            count++;
+        }
+
+        private synchronized long[] window() {
+            long[] result = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+            Arrays.sort(result);
+            return result;
+        }
+
+        private static double toMillis(long nanos) {
+            return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        private static double percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            return toMillis(sorted[Math.max(0, Math.min(index, sorted.length - 1))]);
+        }
+
+        /**
+         * @return the number of samples recorded since startup.
+         */
+        @Exported
+        public synchronized long getCount() {
+            return count;
+        }
+
+        @Exported
+        public double getMean() {
+            long[] window = window();
+            if (window.length == 0) {
+                return 0;
+            }
+            double total = 0;
+            for (long sample : window) {
+                total += sample;
+            }
+            return toMillis((long) (total / window.length));
+        }
+
+        @Exported
+        public double getP50() {
+            return percentile(window(), 50);
+        }
+
+        @Exported
+        public double getP95() {
+            return percentile(window(), 95);
+        }
+
+        @Exported
+        public double getP99() {
+            return percentile(window(), 99);
+        }
+
+        @Exported
+        public double getMax() {
+            long[] window = window();
+            return window.length == 0 ? 0 : toMillis(window[window.length - 1]);
+        }
+
+        @Exported
+        public long[] getBucketBounds() {
+            return BUCKET_BOUNDS.clone();
+        }
+
+        /**
+         * @return the number of samples in the window for each of the {@link #getBucketBounds()} plus one for the
+         * samples above the last bound.
+         */
+        @Exported
+        public long[] getBuckets() {
+            long[] buckets = new long[BUCKET_BOUNDS.length + 1];
+            for (long sample : window()) {
+                int i = 0;
+                while (i < BUCKET_BOUNDS.length && toMillis(sample) > BUCKET_BOUNDS[i]) {
+                    i++;
+                }
+                buckets[i]++;
+            }
+            return buckets;
+        }
+    }
+
+    /**
+     * Shows the metrics on the {@code subversion-hooks} page.
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static class ManagementLinkImpl extends MetricsManagementLink {
+
+        @Override
+        public String getDisplayName() {
+            return Messages.SubversionHookMetrics_DisplayName();
+        }
+
+        @Override
+        public String getDescription() {
+            return Messages.SubversionHookMetrics_Description();
+        }
+
+        @Override
+        public String getUrlName() {
+            return "subversion-hooks";
+        }
+
+        @Override
+        public SubversionHookMetrics getMetrics() {
+            return SubversionHookMetrics.get();
+        }
+    }
+}
@@ -3,6 +3,7 @@ package hudson.scm;
 import static java.util.logging.Level.FINE;
 import static java.util.logging.Level.FINER;
 import static java.util.logging.Level.WARNING;
+import static jakarta.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
 import static jakarta.servlet.http.HttpServletResponse.SC_OK;
 
 import hudson.Extension;
@@ -24,7 +25,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -77,6 +81,26 @@ public class SubversionRepositoryStatus {
          * @return {@code true} if a match for the UUID was found and something was scheduled as a result.
          */
         public abstract boolean onNotify(UUID uuid, long revision, Set<String> affectedPaths);
+
+        /**
+         * Called when a batch of post-commit hook notifications has been received, e.g. from a mirror
+         * replaying several revisions at once.
+         * <p>
+         * The default implementation reports the union of all the affected paths against the highest revision.
+         * @param uuid the UUID of the repository against which the hooks were received.
+         * @param changes the affected paths of each revision, keyed by revision.
+         * @return {@code true} if a match for the UUID was found and something was scheduled as a result.
+         */
+        public boolean onNotify(UUID uuid, SortedMap<Long, Set<String>> changes) {
+            if (changes.isEmpty()) {
+                return false;
+            }
+            Set<String> affectedPaths = new HashSet<>();
+            for (Set<String> paths : changes.values()) {
+                affectedPaths.addAll(paths);
+            }
+            return onNotify(uuid, changes.lastKey(), affectedPaths);
+        }
     }
     
     private static Method IS_IGNORE_POST_COMMIT_HOOKS_METHOD;
@@ -90,6 +114,12 @@ public class SubversionRepositoryStatus {
      */
     @RequirePOST
     public void doNotifyCommit(StaplerRequest2 req, StaplerResponse2 rsp) throws ServletException, IOException {
+        try (SubversionHookMetrics.Notification notification = SubversionHookMetrics.received()) {
+            handleNotifyCommit(req, rsp, notification);
+        }
+    }
+
+    private void handleNotifyCommit(StaplerRequest2 req, StaplerResponse2 rsp, SubversionHookMetrics.Notification notification) throws ServletException, IOException {
         // compute the affected paths
         Set<String> affectedPath = new HashSet<>();
         String line;
@@ -100,17 +130,14 @@ public class SubversionRepositoryStatus {
 	        	if (LOGGER.isLoggable(FINER)) {
 	        		LOGGER.finer("Reading line: "+line);
 	        	}
-	            affectedPath.add(line.substring(4));
-	            if (line.startsWith("svnlook changed --revision ")) {
-	                String msg = "Expecting the output from the svnlook command but instead you just sent me the svnlook invocation command line: " + line;
-	                LOGGER.warning(msg);
-	                throw new IllegalArgumentException(msg);
-	            }
+	            affectedPath.add(toAffectedPath(line));
 	        }
         } finally {
         	IOUtils.closeQuietly(r);
         }
 
+        notification.parsed();
+
         if(LOGGER.isLoggable(FINE))
             LOGGER.fine("Change reported to Subversion repository "+uuid+" on "+affectedPath);
 
@@ -128,10 +155,97 @@ public class SubversionRepositoryStatus {
             rev = Long.parseLong(revParam);
         }
 
+        final long revision = rev;
+        notifyListeners(listener -> listener.onNotify(uuid, revision, affectedPath));
+
+        rsp.setStatus(SC_OK);
+    }
+
+    /**
+     * Notify a batch of commits to this repository, e.g. from a {@code svnsync} mirror replaying many revisions.
+     *
+     * <p>
+     * Each line of the payload is a revision number followed by a space and one line of the output of
+     * <code>svnlook changed</code> for that revision. The whole batch is matched in a single pass, so that each
+     * affected job is scheduled once, with the highest revision relevant to it. A malformed line rejects the whole
+     * batch with a 400 response.
+     */
+    @RequirePOST
+    public void doNotifyCommits(StaplerRequest2 req, StaplerResponse2 rsp) throws ServletException, IOException {
+        try (SubversionHookMetrics.Notification notification = SubversionHookMetrics.received()) {
+            handleNotifyCommits(req, rsp, notification);
+        }
+    }
+
+    private void handleNotifyCommits(StaplerRequest2 req, StaplerResponse2 rsp, SubversionHookMetrics.Notification notification) throws ServletException, IOException {
+        SortedMap<Long, Set<String>> changes = new TreeMap<>();
+        String line;
+        BufferedReader r = new BufferedReader(req.getReader());
+
+        try {
+            while ((line = r.readLine()) != null) {
+                if (LOGGER.isLoggable(FINER)) {
+                    LOGGER.finer("Reading line: " + line);
+                }
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                int separator = line.indexOf(' ');
+                long rev;
+                try {
+                    rev = separator > 0 ? Long.parseLong(line.substring(0, separator)) : -1;
+                } catch (NumberFormatException e) {
+                    rev = -1;
+                }
+                if (rev < 0) {
+                    String msg = "Expecting a revision followed by the output from the svnlook changed command but got: " + line;
+                    LOGGER.warning(msg);
+                    throw new IllegalArgumentException(msg);
+                }
+                changes.computeIfAbsent(rev, k -> new HashSet<>()).add(toAffectedPath(line.substring(separator + 1)));
+            }
+        } catch (IllegalArgumentException e) {
+            rsp.sendError(SC_BAD_REQUEST, e.getMessage());
+            return;
+        } finally {
+            IOUtils.closeQuietly(r);
+        }
+
+        notification.parsed();
+
+        if (LOGGER.isLoggable(FINE))
+            LOGGER.fine("Changes reported to Subversion repository " + uuid + " on " + changes);
+
+        if (!changes.isEmpty()) {
+            notifyListeners(listener -> listener.onNotify(uuid, changes));
+        }
+
+        rsp.setStatus(SC_OK);
+    }
+
+    /**
+     * Extracts the affected path from one line of the output of <code>svnlook changed</code>.
+     */
+    private static String toAffectedPath(String line) {
+        if (line.startsWith("svnlook changed --revision ")) {
+            String msg = "Expecting the output from the svnlook command but instead you just sent me the svnlook invocation command line: " + line;
+            LOGGER.warning(msg);
+            throw new IllegalArgumentException(msg);
+        }
+        // a status column of four characters, then the path
+        if (line.length() <= 4) {
+            String msg = "Expecting the output from the svnlook changed command but got: " + line;
+            LOGGER.warning(msg);
+            throw new IllegalArgumentException(msg);
+        }
+        return line.substring(4);
+    }
+
+    private void notifyListeners(Predicate<Listener> notification) {
         boolean listenerDidSomething = false;
         for (Listener listener : ExtensionList.lookup(Listener.class)) {
             try {
-                if (listener.onNotify(uuid, rev, affectedPath)) {
+                if (notification.test(listener)) {
                     listenerDidSomething = true;
                 }
             } catch (Throwable t) {
@@ -140,8 +254,6 @@ public class SubversionRepositoryStatus {
         }
 
         if (!listenerDidSomething) LOGGER.log(Level.WARNING, "No interest in change to repository UUID {0} found", uuid);
-
-        rsp.setStatus(SC_OK);
     }
 
     private static class SubversionRepoUUIDAndRootPath {
@@ -182,11 +294,13 @@ public class SubversionRepositoryStatus {
                     uuidAndRootPath = new SubversionRepoUUIDAndRootPath(uuid, rootPath);
 
                     LOGGER.finer("Using cached uuid for module location " + urlFromConfiguration + " of job "+ job);
+                    SubversionHookMetrics.get().uuidCacheHit();
                     break;
                 }
             }
 
             if (uuidAndRootPath == null) {
+                SubversionHookMetrics.get().uuidCacheMiss();
                 if (LOGGER.isLoggable(FINER)) {
                     LOGGER.finer("Could not find " + urlFromConfiguration + " in " + remoteUUIDCache.keySet());
                 }
@@ -232,16 +346,42 @@ public class SubversionRepositoryStatus {
             trigger.run(actions);
         }
 
+        /**
+         * Returns the highest revision whose affected paths touch the configured module location.
+         *
+         * @return the highest relevant revision, or {@code null} if none of the changes affect the module location.
+         */
+        Long getHighestRelevantRevision(String configuredRepoFullPath, String rootRepoPath, SortedMap<Long, Set<String>> changes) {
+            Long relevant = null;
+            for (Map.Entry<Long, Set<String>> change : changes.entrySet()) {
+                if (this.doModuleLocationHasAPathFromAffectedPath(configuredRepoFullPath, rootRepoPath, change.getValue())) {
+                    relevant = change.getKey();
+                }
+            }
+            return relevant;
+        }
+
         @Override
         public boolean onNotify(UUID uuid, long rev, Set<String> affectedPath) {
+            SortedMap<Long, Set<String>> changes = new TreeMap<>();
+            changes.put(rev, affectedPath);
+            return onNotify(uuid, changes);
+        }
+
+        @Override
+        public boolean onNotify(UUID uuid, SortedMap<Long, Set<String>> changes) {
             boolean scmFound = false, triggerFound = false, uuidFound = false, pathFound = false;
+            SubversionHookMetrics metrics = SubversionHookMetrics.get();
             LOGGER.fine("Starting subversion locations checks for all jobs");
             for (Job p : this.jobProvider.getAllJobs()) {
+                metrics.jobExamined();
                 SCMTriggerItem scmTriggerItem = SCMTriggerItem.SCMTriggerItems.asSCMTriggerItem(p);
                 if (scmTriggerItem == null) {
+                    metrics.jobSkipped();
                     continue;
                 }
                 if (p instanceof AbstractProject && ((AbstractProject) p).isDisabled()) {
+                    metrics.jobSkipped();
                     continue;
                 }
                 String jobName = p.getName();
@@ -253,14 +393,15 @@ public class SubversionRepositoryStatus {
 
                     SubversionSCM sscm = (SubversionSCM) scm;
 
-                    List<SvnInfo> infos = new ArrayList<>();
+                    List<ModuleLocation> repoLocations = new ArrayList<>();
+                    // the highest revision relevant to any of the module locations, not just the first one matching
+                    Long highestRelevantRevision = null;
 
                     try {
-                        boolean projectMatches = false;
                         for (ModuleLocation loc : sscm.getProjectLocations(p)) {
                             String urlFromConfiguration = loc.getURL();
                             //LOGGER.log(WARNING, "Checking uuid for module location + " + loc + " of job "+ p + " (urlFromConfiguration : " + urlFromConfiguration + ")");
-                        
+
                             try {
                                 SubversionRepoUUIDAndRootPath uuidAndRootPath = this.remoteUUIDAndRootPathFromCacheOrFromSVN(p, sscm, loc, urlFromConfiguration);
                                 UUID remoteUUID = uuidAndRootPath.uuid;
@@ -268,24 +409,33 @@ public class SubversionRepositoryStatus {
 
                                 String configuredRepoFullPath = loc.getSVNURL().getPath();
                                 String rootRepoPath = uuidAndRootPath.rootPath;
-                                if (this.doModuleLocationHasAPathFromAffectedPath(configuredRepoFullPath, rootRepoPath, affectedPath)) {
-                                    projectMatches = true;
+                                Long relevantRevision = this.getHighestRelevantRevision(configuredRepoFullPath, rootRepoPath, changes);
+                                if (relevantRevision != null) {
                                     pathFound = true;
+                                    if (highestRelevantRevision == null || relevantRevision > highestRelevantRevision) {
+                                        highestRelevantRevision = relevantRevision;
+                                    }
                                 }
 
-                                if ( rev != -1 ) {
-                                    infos.add(new SvnInfo(loc.getURL(), rev));
-                                }
+                                repoLocations.add(loc);
                             } catch (SVNCancelException e) {
                                 LOGGER.log(WARNING, "Failed to handle Subversion commit notification (was trying to access " + urlFromConfiguration + " of job " + jobName + "). If you are using svn:externals feature ensure that the credentials of the externals are added on the Additional Credentials field", e);
                             } catch (SVNException e) {
                                 LOGGER.log(WARNING, "Failed to handle Subversion commit notification (was trying to access " + urlFromConfiguration + " of job " + jobName + ")", e);
                             }
-                            
-                            if (projectMatches) {
-                                this.scheduleImediatePollingOfJob(p, trigger, infos);
-                                break SCMS;
+                        }
+
+                        if (highestRelevantRevision != null) {
+                            List<SvnInfo> infos = new ArrayList<>();
+                            if (highestRelevantRevision != -1) {
+                                for (ModuleLocation repoLocation : repoLocations) {
+                                    infos.add(new SvnInfo(repoLocation.getURL(), highestRelevantRevision));
+                                }
                             }
+                            long matched = metrics.jobMatched();
+                            this.scheduleImediatePollingOfJob(p, trigger, infos);
+                            metrics.triggered(matched);
+                            break SCMS;
                         }
                     } catch(IOException e) {
                         LOGGER.log(WARNING, "Failed to handle Subversion commit notification (getting module locations failed for job " + jobName + ")", e);
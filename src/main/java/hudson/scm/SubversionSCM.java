@@ -100,18 +100,23 @@ import hudson.remoting.Channel;
 import hudson.remoting.VirtualChannel;
 import hudson.scm.UserProvidedCredential.AuthenticationManagerImpl;
 import hudson.scm.subversion.CheckoutUpdater;
+import hudson.scm.subversion.ExportUpdater;
 import hudson.scm.subversion.Messages;
+import hudson.scm.subversion.SparseCheckout;
 import hudson.scm.subversion.SvnHelper;
 import hudson.scm.subversion.UpdateUpdater;
 import hudson.scm.subversion.UpdateWithRevertUpdater;
 import hudson.scm.subversion.WorkspaceUpdater;
 import hudson.scm.subversion.WorkspaceUpdater.UpdateTask;
 import hudson.scm.subversion.WorkspaceUpdaterDescriptor;
+import hudson.util.DaemonThreadFactory;
 import hudson.util.FormValidation;
 import hudson.util.LogTaskListener;
 import hudson.util.MultipartFormDataParser;
+import hudson.util.NamingThreadFactory;
 import hudson.util.Scrambler;
 import hudson.util.Secret;
+import hudson.util.StreamTaskListener;
 
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
@@ -145,6 +150,10 @@ import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.UUID;
 import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
@@ -168,6 +177,7 @@ import org.apache.tools.ant.Project;
 import org.apache.tools.ant.taskdefs.Chmod;
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest2;
 import org.kohsuke.stapler.StaplerResponse2;
@@ -266,6 +276,13 @@ public class SubversionSCM extends SCM {
     private boolean ignoreDirPropChanges;
     private boolean filterChangelog;
     private boolean quietOperation;
+    /**
+     * Whether to check out sparse working copies, with only the {@link #sparsePaths} or, failing that, what the
+     * {@link #includedRegions} may match.
+     */
+    private boolean sparseCheckout;
+    @CheckForNull
+    private String sparsePaths;
 
     /**
      * A cache of the svn:externals (keyed by project).
@@ -721,6 +738,48 @@ public class SubversionSCM extends SCM {
         this.quietOperation = quietOperation;
     }
 
+    @Exported
+    public boolean isSparseCheckout() {
+        return sparseCheckout;
+    }
+
+    @DataBoundSetter
+    public void setSparseCheckout(boolean sparseCheckout) {
+        this.sparseCheckout = sparseCheckout;
+    }
+
+    /**
+     * @return the directories to check out in full in a sparse checkout, from the repository root and separated by
+     * new lines, or {@code null} to derive them from the included regions.
+     */
+    @Exported
+    @CheckForNull
+    public String getSparsePaths() {
+        return sparsePaths;
+    }
+
+    @DataBoundSetter
+    public void setSparsePaths(@CheckForNull String sparsePaths) {
+        this.sparsePaths = Util.fixEmptyAndTrim(sparsePaths);
+    }
+
+    /**
+     * Gets the shape of the working copies to check out.
+     *
+     * @return {@code null} unless {@link #isSparseCheckout()} and there are either sparse paths or included regions.
+     */
+    @CheckForNull
+    SparseCheckout getSparseCheckoutShape() {
+        if (!sparseCheckout) {
+            return null;
+        }
+        if (sparsePaths != null) {
+            return SparseCheckout.of(sparsePaths.split("[\\r\\n]+"));
+        }
+        String[] included = getIncludedRegionsNormalized();
+        return included == null ? null : SparseCheckout.fromIncludedRegions(included);
+    }
+
     /**
      * Sets the <code>SVN_REVISION_n</code> and <code>SVN_URL_n</code> environment variables during the build.
      */
@@ -763,7 +822,7 @@ public class SubversionSCM extends SCM {
     /**
      * Called after checkout/update has finished to compute the changelog.
      */
-    private void calcChangeLog(Run<?,?> build, FilePath workspace, File changelogFile, SCMRevisionState baseline, TaskListener listener, Map<String, List<SubversionSCM.External>> externalsMap, EnvVars env) throws IOException, InterruptedException {
+    private void calcChangeLog(Run<?,?> build, FilePath workspace, File changelogFile, SCMRevisionState baseline, TaskListener listener, Map<String, List<SubversionSCM.External>> externalsMap, @CheckForNull Map<String, SubversionChangeLogBuilder.PathContext> contexts, EnvVars env) throws IOException, InterruptedException {
         if (baseline == null) {
             // nothing to compare against
             createEmptyChangeLog(changelogFile, listener, "log");
@@ -775,7 +834,7 @@ public class SubversionSCM extends SCM {
         // so let's do it by ourselves to be really sure that the stream gets closed.
         boolean created;
         try (OutputStream os = new BufferedOutputStream(new FileOutputStream(changelogFile))) {
-            created = new SubversionChangeLogBuilder(build, workspace, (SVNRevisionState) baseline, env, listener, this).run(externalsMap, new StreamResult(os));
+            created = new SubversionChangeLogBuilder(build, workspace, (SVNRevisionState) baseline, env, listener, this).run(externalsMap, contexts, new StreamResult(os));
         }
         if(!created)
             createEmptyChangeLog(changelogFile, listener, "log");
@@ -888,7 +947,8 @@ public class SubversionSCM extends SCM {
             EnvVarsUtils.overrideAll(env, ((AbstractBuild) build).getBuildVariables());
         }
 
-        Map<String, List<External>> externalsMap = checkout(build,workspace,listener,env);
+        CheckOutResult result = checkout(build,workspace,listener,env);
+        Map<String, List<External>> externalsMap = result == null ? null : result.externals;
 
         List<External> externalsForAll = new ArrayList<>();
         if (externalsMap != null) {
@@ -897,7 +957,9 @@ public class SubversionSCM extends SCM {
           }
         }
 
-        List<SvnInfoP> pList = workspace.act(new BuildRevisionMapTask(build, this, listener, externalsForAll, env));
+        List<SvnInfoP> pList = result != null
+                ? result.revisions
+                : workspace.act(new BuildRevisionMapTask(build, this, listener, externalsForAll, env));
         List<SvnInfo> revList = pList.stream().map(svnInfoP -> svnInfoP.info).collect(toList());
 
         // write out the revision file
@@ -927,7 +989,8 @@ public class SubversionSCM extends SCM {
             // add the tag action
             build.addAction(new SubversionTagAction(build,revList));            
             // write out the changelog file
-            calcChangeLog(build, workspace, changelogFile, baseline, listener, externalsMap, env);         
+            calcChangeLog(build, workspace, changelogFile, baseline, listener, externalsMap,
+                    result == null ? null : result.contexts, env);
         }
     }
 
@@ -940,10 +1003,11 @@ public class SubversionSCM extends SCM {
      *
      * @return null
      *      if the operation failed. Otherwise the set of local workspace paths
-     *      (relative to the workspace root) that has loaded due to svn:external.
+     *      (relative to the workspace root) that has loaded due to svn:external, along with
+     *      the revisions of the workspace and the changelog contexts.
      */
     @SuppressFBWarnings(value = "NP_NULL_ON_SOME_PATH", justification = "TODO needs triage")
-    private Map<String, List<External>> checkout(Run build, FilePath workspace, TaskListener listener, EnvVars env) throws IOException, InterruptedException {
+    private CheckOutResult checkout(Run build, FilePath workspace, TaskListener listener, EnvVars env) throws IOException, InterruptedException {
         if (repositoryLocationsNoLongerExist(build, listener, env)) {
             Run lsb = build.getParent().getLastSuccessfulBuild();
             if (build instanceof AbstractBuild && lsb != null && build.getNumber()-lsb.getNumber()>10
@@ -960,23 +1024,33 @@ public class SubversionSCM extends SCM {
             return null;
         }
 
-        Map<String, List<External>> externalsMap = new HashMap<>();
-
         Set<String> unauthenticatedRealms = new LinkedHashSet<>();
-        for (ModuleLocation location : getLocations(env, build)) {
-            CheckOutTask checkOutTask =
-                    new CheckOutTask(new CheckOutUpdateTask(build, this, location, build.getTimestamp().getTime(), listener, env, quietOperation));
-            List<External> externals = new ArrayList<>(workspace.act(checkOutTask));
-            // save location <---> externals maps
-            externalsMap.put(location.remote, externals);
+        ModuleLocation[] locations = getLocations(env, build);
+        List<CheckOutTask> checkOutTasks = new ArrayList<>(locations.length);
+        Set<String> servers = new HashSet<>();
+        int parallelism = CHECKOUT_PARALLELISM > 1 && locations.length > 1 && areDisjoint(locations) ? CHECKOUT_PARALLELISM : 1;
+        // concurrent checkouts, and the credentials they pick, log each to their own buffer, written out in order
+        List<ByteArrayOutputStream> logs = new ArrayList<>();
+        for (ModuleLocation location : locations) {
+            CheckOutUpdateTask task = new CheckOutUpdateTask(build, this, location, build.getTimestamp().getTime(),
+                    parallelism > 1 ? buffer(logs) : listener, env, quietOperation);
+            // the clock of a server only needs checking once
+            task.checkClock = servers.add(getServer(location));
+            checkOutTasks.add(new CheckOutTask(task));
+        }
+        CheckOutResult result;
+        try {
+            result = workspace.act(new CheckOutAndInspectTask(checkOutTasks, parallelism,
+                    new BuildRevisionMapTask(build, this, parallelism > 1 ? buffer(logs) : listener,
+                            Collections.emptyList(), env)));
+        } finally {
+            for (ByteArrayOutputStream log : logs) {
+                log.writeTo(listener.getLogger());
+            }
+        }
+        for (CheckOutTask checkOutTask : checkOutTasks) {
+            // in location order whatever the order the checkouts completed in
             unauthenticatedRealms.addAll(checkOutTask.getUnauthenticatedRealms());
-            // olamy: remove null check at it cause test failure
-            // see https://github.com/jenkinsci/subversion-plugin/commit/de23a2b781b7b86f41319977ce4c11faee75179b#commitcomment-1551273
-            /*if ( externalsFound != null ){
-                externals.addAll(externalsFound);
-            } else {
-                externals.addAll( new ArrayList<External>( 0 ) );
-            }*/
         }
         if (additionalCredentials != null) {
             for (AdditionalCredentials c : additionalCredentials) {
@@ -1005,7 +1079,16 @@ public class SubversionSCM extends SCM {
             }
         }
 
-        return externalsMap;
+        return result;
+    }
+
+    private static String getServer(ModuleLocation location) {
+        try {
+            SVNURL url = location.getSVNURL();
+            return url.getProtocol() + "://" + url.getHost() + ":" + url.getPort();
+        } catch (SVNException e) {
+            return location.getURL();
+        }
     }
 
     private synchronized Map<Job, List<External>> getProjectExternalsCache() {
@@ -1016,6 +1099,155 @@ public class SubversionSCM extends SCM {
         return projectExternalsCache;
     }
 
+    /**
+     * Creates a listener writing to a new buffer, added to {@code logs}.
+     */
+    private static TaskListener buffer(List<ByteArrayOutputStream> logs) {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        logs.add(log);
+        return new StreamTaskListener(log, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks whether the locations can be checked out concurrently.
+     *
+     * @return {@code true} if no location is checked out into the same directory as, or a directory within that of,
+     * another location.
+     */
+    static boolean areDisjoint(ModuleLocation[] locations) {
+        List<String> dirs = new ArrayList<>(locations.length);
+        for (ModuleLocation location : locations) {
+            String dir = location.getLocalDir().replace('\\', '/');
+            while (dir.startsWith("./")) {
+                dir = dir.substring(2);
+            }
+            while (dir.endsWith("/")) {
+                dir = dir.substring(0, dir.length() - 1);
+            }
+            if (dir.isEmpty() || dir.equals(".") || dir.contains("..")) {
+                // the workspace itself, or somewhere we cannot reason about
+                return false;
+            }
+            for (String other : dirs) {
+                if (dir.equals(other) || dir.startsWith(other + '/') || other.startsWith(dir + '/')) {
+                    return false;
+                }
+            }
+            dirs.add(dir);
+        }
+        return true;
+    }
+
+    /**
+     * Does on the agent, in a single call, everything a checkout needs from the workspace: checks out or updates each
+     * location, then collects the revisions of the locations and their externals along with the contexts their
+     * changelogs are computed in.
+     * <p>
+     * Locations with {@link #areDisjoint(ModuleLocation[]) disjoint} local directories may be checked out concurrently.
+     * The output of each location, including that of its authentication provider, then goes to a buffer on the
+     * controller that is written out in location order, so that it does not interleave with that of the others.
+     */
+    private static final class CheckOutAndInspectTask extends MasterToSlaveFileCallable<CheckOutResult> {
+
+        private final List<CheckOutTask> tasks;
+        private final int parallelism;
+        private final BuildRevisionMapTask revisionMap;
+
+        CheckOutAndInspectTask(List<CheckOutTask> tasks, int parallelism, BuildRevisionMapTask revisionMap) {
+            this.tasks = tasks;
+            this.parallelism = parallelism;
+            this.revisionMap = revisionMap;
+        }
+
+        @Override
+        public CheckOutResult invoke(File ws, VirtualChannel channel) throws IOException, InterruptedException {
+            List<List<External>> results;
+            if (parallelism > 1) {
+                results = checkOutConcurrently(ws);
+            } else {
+                results = new ArrayList<>(tasks.size());
+                for (CheckOutTask task : tasks) {
+                    results.add(task.invoke(ws, channel));
+                }
+            }
+            Map<String, List<External>> externals = new LinkedHashMap<>();
+            for (int i = 0; i < tasks.size(); i++) {
+                externals.put(tasks.get(i).delegate.location.remote, new ArrayList<>(results.get(i)));
+            }
+            List<External> externalsForAll = new ArrayList<>();
+            for (List<External> e : externals.values()) {
+                externalsForAll.addAll(e);
+            }
+            Map<String, SVNInfo> exported = new HashMap<>();
+            for (CheckOutTask task : tasks) {
+                if (task.delegate.task instanceof ExportUpdater.TaskImpl) {
+                    exported.putAll(((ExportUpdater.TaskImpl) task.delegate.task).getExported());
+                }
+            }
+            Map<String, SubversionChangeLogBuilder.PathContext> contexts = new HashMap<>();
+            List<SvnInfoP> revisions = revisionMap.inspect(ws, externalsForAll, contexts, exported);
+            return new CheckOutResult(externals, revisions, contexts);
+        }
+
+        private List<List<External>> checkOutConcurrently(File ws) throws IOException, InterruptedException {
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, tasks.size()),
+                    new NamingThreadFactory(new DaemonThreadFactory(), SubversionSCM.class.getSimpleName() + ".checkout"));
+            try {
+                List<Future<List<External>>> futures = new ArrayList<>(tasks.size());
+                for (CheckOutTask task : tasks) {
+                    futures.add(executor.submit(() -> task.delegate.run(ws)));
+                }
+                List<List<External>> results = new ArrayList<>(tasks.size());
+                IOException failure = null;
+                // wait for all of them, a failed checkout does not leave the others half done
+                for (Future<List<External>> future : futures) {
+                    try {
+                        results.add(future.get());
+                    } catch (ExecutionException e) {
+                        results.add(Collections.emptyList());
+                        if (failure == null) {
+                            failure = e.getCause() instanceof IOException
+                                    ? (IOException) e.getCause()
+                                    : new IOException(e.getCause());
+                        }
+                    }
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+                return results;
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * What {@link CheckOutAndInspectTask} brings back from the agent.
+     */
+    private static final class CheckOutResult implements Serializable {
+        /**
+         * The externals of each location, keyed by {@link ModuleLocation#remote} in location order.
+         */
+        private final Map<String, List<External>> externals;
+        private final List<SvnInfoP> revisions;
+        /**
+         * The changelog contexts of the locations and externals, keyed by path relative to the workspace.
+         */
+        private final Map<String, SubversionChangeLogBuilder.PathContext> contexts;
+
+        CheckOutResult(Map<String, List<External>> externals, List<SvnInfoP> revisions,
+                       Map<String, SubversionChangeLogBuilder.PathContext> contexts) {
+            this.externals = externals;
+            this.revisions = revisions;
+            this.contexts = contexts;
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+
     private static final class CheckOutTask extends MasterToSlaveFileCallable<List<External>> {
 
         private final CheckOutUpdateTask delegate;
@@ -1045,6 +1277,10 @@ public class SubversionSCM extends SCM {
         private final UpdateTask task;
         private final boolean storeAuthToDisk = descriptor().isStoreAuthToDisk();
         private final int workspaceFormat = descriptor().getWorkspaceFormat();
+        /**
+         * Whether to warn about the clock of the server being ahead, which only needs doing once per server.
+         */
+        boolean checkClock = true;
 
         CheckOutUpdateTask(Run<?, ?> build, SubversionSCM parent, ModuleLocation location, Date timestamp,
                             TaskListener listener, EnvVars env, boolean quietOperation) {
@@ -1055,6 +1291,8 @@ public class SubversionSCM extends SCM {
             this.revisions = build.getAction(RevisionParameterAction.class);
             this.task = parent.getWorkspaceUpdater().createTask(workspaceFormat);
             this.quietOperation = quietOperation;
+            this.sparseCheckout = parent.getSparseCheckoutShape();
+            this.externalsParallelism = EXTERNALS_PARALLELISM;
         }
 
         List<External> run(File ws) throws IOException {
@@ -1065,7 +1303,9 @@ public class SubversionSCM extends SCM {
             try {
                 List<External> externals = perform();
 
-                checkClockOutOfSync();
+                if (checkClock) {
+                    checkClockOutOfSync();
+                }
 
                 return externals;
 
@@ -1345,7 +1585,6 @@ public class SubversionSCM extends SCM {
      */
     private static class BuildRevisionMapTask extends MasterToSlaveFileCallable<List<SvnInfoP>> {
         private final ISVNAuthenticationProvider defaultAuthProvider;
-        private final Map<String,ISVNAuthenticationProvider> authProviders;
         private final TaskListener listener;
         private final List<External> externals;
         private final ModuleLocation[] locations;
@@ -1357,10 +1596,6 @@ public class SubversionSCM extends SCM {
             this.externals = externals;
             this.locations = parent.getLocations(env, build);
             this.defaultAuthProvider = parent.createAuthenticationProvider(build.getParent(), null, listener);
-            this.authProviders = new LinkedHashMap<>();
-            for (ModuleLocation loc: locations) {
-                authProviders.put(loc.remote, parent.createAuthenticationProvider(build.getParent(), loc, listener));
-            }
         }
 
         /**
@@ -1368,36 +1603,52 @@ public class SubversionSCM extends SCM {
          *      null if the parsing somehow fails. Otherwise a map from the repository URL to revisions.
          */
         public List<SvnInfoP> invoke(File ws, VirtualChannel channel) throws IOException {
+            return inspect(ws, externals, null, Collections.emptyMap());
+        }
+
+        /**
+         * Gets the revisions of the working copies of the locations and their externals. This only reads the working
+         * copies, so one client manager serves all of them whatever their credentials.
+         *
+         * @param contexts if not null, collects the changelog context of each location and external, keyed by its path
+         *                 relative to the workspace.
+         * @param exported the information of the locations and externals that were exported rather than checked out,
+         *                 which have no working copy to read it from, keyed by their path relative to the workspace.
+         */
+        List<SvnInfoP> inspect(File ws, List<External> externals,
+                               @CheckForNull Map<String, SubversionChangeLogBuilder.PathContext> contexts,
+                               Map<String, SVNInfo> exported) {
             List<SvnInfoP> revisions = new ArrayList<>();
 
-            for (ModuleLocation module : locations) {
-                ISVNAuthenticationProvider authProvider = authProviders.get(module.remote);
-                if (authProvider == null) {
-                    authProvider = defaultAuthProvider;
-                }
-                final SvnClientManager manager = createClientManager(authProvider, storeAuthToDisk, workspaceFormat);
-                try {
-                    final SVNWCClient svnWc = manager.getWCClient();
+            final SvnClientManager manager = createClientManager(defaultAuthProvider, storeAuthToDisk, workspaceFormat);
+            try {
+                final SVNWCClient svnWc = manager.getWCClient();
+                for (ModuleLocation module : locations) {
                     // invoke the "svn info"
                     try {
-                        SvnInfo info =
-                                new SvnInfo(svnWc.doInfo(new File(ws, module.getLocalDir()), SVNRevision.WORKING));
-                        revisions.add(new SvnInfoP(info, false));
+                        SVNInfo info = exported.get(module.getLocalDir());
+                        if (info == null) {
+                            info = svnWc.doInfo(new File(ws, module.getLocalDir()), SVNRevision.WORKING);
+                        }
+                        revisions.add(new SvnInfoP(new SvnInfo(info), false));
+                        if (contexts != null) {
+                            contexts.put(module.getLocalDir(), SubversionChangeLogBuilder.createContext(info));
+                        }
                     } catch (SVNException e) {
                         e.printStackTrace(listener.error("Failed to parse svn info for " + module.remote));
                     }
-                } finally {
-                    manager.dispose();
                 }
-            }
-            final SvnClientManager manager = createClientManager(defaultAuthProvider, storeAuthToDisk, workspaceFormat);
-            try {
-                final SVNWCClient svnWc = manager.getWCClient();
                 for (External ext : externals) {
                     try {
                         // for external files we get the current head revision here which is not the last changed revision
-                        SvnInfo info = new SvnInfo(svnWc.doInfo(new File(ws, ext.path), SVNRevision.WORKING));
-                        revisions.add(new SvnInfoP(info, ext.isRevisionFixed()));
+                        SVNInfo info = exported.get(ext.path);
+                        if (info == null) {
+                            info = svnWc.doInfo(new File(ws, ext.path), SVNRevision.WORKING);
+                        }
+                        revisions.add(new SvnInfoP(new SvnInfo(info), ext.isRevisionFixed()));
+                        if (contexts != null) {
+                            contexts.put(ext.path, SubversionChangeLogBuilder.createContext(info));
+                        }
                     } catch (SVNException e) {
                         e.printStackTrace(
                                 listener.error("Failed to parse svn info for external " + ext.url + " at " + ext.path));
@@ -3311,6 +3562,20 @@ public class SubversionSCM extends SCM {
     public static final int DEFAULT_TIMEOUT = Integer.getInteger(SubversionSCM.class.getName() + ".timeout", 3600 *
             1000);
 
+    /**
+     * Maximum number of module locations checked out concurrently on the agent, which is only done for locations whose
+     * local directories do not overlap. The default of {@code 1} checks them out one after the other.
+     */
+    static int CHECKOUT_PARALLELISM = Math.max(1, Integer.getInteger(SubversionSCM.class.getName() + ".checkoutParallelism", 1));
+
+    /**
+     * Maximum number of svn:externals of a module location checked out concurrently, after the module location
+     * itself. The default of {@code 1} leaves them to Subversion, which fetches them one after the other. Only
+     * {@link CheckoutUpdater} does so, as the externals are not recorded in the working copy they are in, which
+     * could then not be updated by a later build.
+     */
+    static int EXTERNALS_PARALLELISM = Math.max(1, Integer.getInteger(SubversionSCM.class.getName() + ".externalsParallelism", 1));
+
     /**
      * Property to control whether SCM polling happens from the slave or master
      */
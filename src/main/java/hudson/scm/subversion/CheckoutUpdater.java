@@ -41,6 +41,7 @@ import org.tmatesoft.svn.core.SVNDepth;
 import org.tmatesoft.svn.core.SVNException;
 import org.tmatesoft.svn.core.internal.wc17.db.ISVNWCDb;
 import org.tmatesoft.svn.core.internal.wc2.compat.SvnCodec;
+import org.tmatesoft.svn.core.wc.SVNInfo;
 import org.tmatesoft.svn.core.wc.SVNRevision;
 import org.tmatesoft.svn.core.wc.SVNUpdateClient;
 import org.tmatesoft.svn.core.wc2.SvnCheckout;
@@ -117,15 +118,17 @@ public class CheckoutUpdater extends WorkspaceUpdater {
                     location.isCancelProcessOnExternalsFail());
                 svnuc.setEventHandler(eventHandler);
                 svnuc.setExternalsHandler(eventHandler);
-                svnuc.setIgnoreExternals(location.isIgnoreExternalsOption());
+                // externals are fetched concurrently once the rest is checked out
+                boolean concurrentExternals = externalsParallelism > 1 && !location.isIgnoreExternalsOption();
+                svnuc.setIgnoreExternals(location.isIgnoreExternalsOption() || concurrentExternals);
                 SVNDepth svnDepth = location.getSvnDepthForCheckout();
                 SvnCheckout checkout = svnuc.getOperationsFactory().createCheckout();
                 checkout.setSource(SvnTarget.fromURL(location.getSVNURL(), SVNRevision.HEAD));
                 checkout.setSingleTarget(SvnTarget.fromFile(local.getCanonicalFile()));
-                checkout.setDepth(svnDepth);
+                checkout.setDepth(sparseCheckout != null ? SVNDepth.EMPTY : svnDepth);
                 checkout.setRevision(r);
                 checkout.setAllowUnversionedObstructions(true);
-                checkout.setIgnoreExternals(location.isIgnoreExternalsOption());
+                checkout.setIgnoreExternals(location.isIgnoreExternalsOption() || concurrentExternals);
                 checkout.setExternalsHandler(SvnCodec.externalsHandler(svnuc.getExternalsHandler()));
 
                 // Statement to guard against JENKINS-26458.
@@ -136,7 +139,35 @@ public class CheckoutUpdater extends WorkspaceUpdater {
                 // Workaround for SVNKIT-430 is to set the working copy format when
                 // a checkout is performed.
                 checkout.setTargetWorkingCopyFormat(workspaceFormat);
-                checkout.run();
+                Long revision = checkout.run();
+
+                if (sparseCheckout != null) {
+                    // the rest is brought to the same revision as the root
+                    SVNRevision checkedOut = SVNRevision.create(revision);
+                    SVNInfo info = clientManager.getWCClient().doInfo(local, SVNRevision.WORKING);
+                    List<String> paths = sparseCheckout.resolve(info.getURL(), info.getRepositoryRootURL());
+                    if (paths == null) {
+                        listener.getLogger().println("Sparse checkout includes all of " + location.remote);
+                        svnuc.doUpdate(local, checkedOut, svnDepth, true, true);
+                    } else {
+                        SparseCheckout.apply(svnuc, clientManager.getWCClient(), local, paths, checkedOut,
+                                listener.getLogger());
+                    }
+                }
+
+                if (concurrentExternals) {
+                    PrintStream out = new PrintStream(pos);
+                    List<External> fetched = new ConcurrentExternals(this, workspaceFormat).fetch(local, r, out);
+                    if (fetched != null) {
+                        externals.addAll(fetched);
+                    } else {
+                        // file externals can only be added by Subversion itself, so let it fetch all of them, none
+                        // having been fetched yet, into a working copy already at the revision
+                        svnuc.setIgnoreExternals(false);
+                        svnuc.doUpdate(local, SVNRevision.create(revision), SVNDepth.UNKNOWN, true, false);
+                    }
+                    out.flush();
+                }
             } catch (SVNCancelException e) {
                 if (isAuthenticationFailedError(e)) {
                     e.printStackTrace(listener.error("Failed to check out " + location.remote));
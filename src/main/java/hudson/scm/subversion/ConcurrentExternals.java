@@ -0,0 +1,297 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.scm.subversion;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import hudson.scm.SubversionSCM;
+import hudson.scm.SubversionSCM.External;
+import hudson.scm.SubversionWorkspaceSelector;
+import hudson.scm.SvnClientManager;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.scm.impl.subversion.RemotableSVNErrorMessage;
+import org.tmatesoft.svn.core.SVNCancelException;
+import org.tmatesoft.svn.core.SVNDepth;
+import org.tmatesoft.svn.core.SVNErrorCode;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNNodeKind;
+import org.tmatesoft.svn.core.SVNProperty;
+import org.tmatesoft.svn.core.SVNPropertyValue;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.internal.wc.SVNExternal;
+import org.tmatesoft.svn.core.internal.wc17.db.ISVNWCDb;
+import org.tmatesoft.svn.core.internal.wc2.compat.SvnCodec;
+import org.tmatesoft.svn.core.wc.ISVNPropertyHandler;
+import org.tmatesoft.svn.core.wc.SVNClientManager;
+import org.tmatesoft.svn.core.wc.SVNInfo;
+import org.tmatesoft.svn.core.wc.SVNPropertyData;
+import org.tmatesoft.svn.core.wc.SVNRevision;
+import org.tmatesoft.svn.core.wc.SVNUpdateClient;
+import org.tmatesoft.svn.core.wc.SVNWCClient;
+import org.tmatesoft.svn.core.wc2.SvnCheckout;
+import org.tmatesoft.svn.core.wc2.SvnTarget;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks out the {@code svn:externals} of a working copy concurrently, once the working copy itself has been checked
+ * out with externals ignored, rather than one after the other as SVNKit does.
+ * <p>
+ * Each external is fetched by its own client, and externals nested in it are left to that client. The output of each
+ * of them is buffered and written out in the order the externals are defined, and the {@link External}s are recorded
+ * in that order too, the way {@link SubversionUpdateEventHandler} does.
+ * <p>
+ * The externals are standalone working copies that are not recorded in the working copy they are in, so this is only
+ * meant for a fresh check out that is deleted rather than updated by the next build.
+ */
+final class ConcurrentExternals {
+    private final WorkspaceUpdater.UpdateTask task;
+    private final int workspaceFormat;
+
+    ConcurrentExternals(WorkspaceUpdater.UpdateTask task, int workspaceFormat) {
+        this.task = task;
+        this.workspaceFormat = workspaceFormat == SubversionWorkspaceSelector.OLD_WC_FORMAT_17
+                ? ISVNWCDb.WC_FORMAT_17 // same as CheckoutUpdater, for JENKINS-26458
+                : workspaceFormat;
+    }
+
+    /**
+     * Fetches the externals defined in a working copy.
+     *
+     * @param local    the working copy of the module location, freshly checked out.
+     * @param revision the revision the working copy was checked out to, which externals without a revision of their
+     *                 own follow if it is a date, as in a check out.
+     * @param out      where to print the progress.
+     * @return the externals, or {@code null} without fetching any if some of them are file externals, which only
+     * SVNKit can add to the working copy they are in, so that the caller has to let it fetch all of them.
+     */
+    @CheckForNull
+    List<External> fetch(File local, SVNRevision revision, PrintStream out) throws SVNException {
+        List<Definition> definitions = collect(local);
+        if (definitions.isEmpty()) {
+            return new ArrayList<>();
+        }
+        SVNRevision floating = revision.getDate() != null ? revision : SVNRevision.HEAD;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(task.externalsParallelism, definitions.size()),
+                new NamingThreadFactory(new DaemonThreadFactory(), ConcurrentExternals.class.getSimpleName()));
+        try {
+            // looked up first, so that nothing is fetched twice if SVNKit has to fetch them all
+            List<Future<Boolean>> kinds = new ArrayList<>(definitions.size());
+            for (Definition definition : definitions) {
+                kinds.add(executor.submit(() -> definition.isFile(floating)));
+            }
+            for (Future<Boolean> kind : kinds) {
+                try {
+                    if (kind.get()) {
+                        return null;
+                    }
+                } catch (ExecutionException e) {
+                    // left to the check out to report
+                } catch (InterruptedException e) {
+                    throw new SVNCancelException();
+                }
+            }
+
+            List<Future<List<External>>> futures = new ArrayList<>(definitions.size());
+            List<ByteArrayOutputStream> logs = new ArrayList<>(definitions.size());
+            for (Definition definition : definitions) {
+                ByteArrayOutputStream log = new ByteArrayOutputStream();
+                logs.add(log);
+                futures.add(executor.submit(() -> definition.fetch(floating,
+                        new PrintStream(log, true, StandardCharsets.UTF_8))));
+            }
+            List<External> externals = new ArrayList<>();
+            SVNException failure = null;
+            for (int i = 0; i < futures.size(); i++) {
+                Definition definition = definitions.get(i);
+                try {
+                    externals.addAll(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    SVNException cause = e.getCause() instanceof SVNException
+                            ? (SVNException) e.getCause()
+                            : new SVNException(new RemotableSVNErrorMessage(SVNErrorCode.UNKNOWN, e.getCause()), e.getCause());
+                    if (cause instanceof SVNCancelException) {
+                        failure = cause;
+                        break;
+                    }
+                    logs.get(i).writeBytes((cause.getMessage() + "\n"
+                            + Messages.SubversionUpdateEventHandler_FetchExternal(definition.url, definition.revision,
+                            definition.target) + " failed!\n").getBytes(StandardCharsets.UTF_8));
+                    if (task.location.isCancelProcessOnExternalsFail()) {
+                        // as Subversion would, stop at the first external that fails and cancel the rest
+                        failure = new SVNException(new RemotableSVNErrorMessage(SVNErrorCode.CL_ERROR_PROCESSING_EXTERNALS,
+                                SVNErrorCode.CL_ERROR_PROCESSING_EXTERNALS.getDescription() + ": <"
+                                        + definition.target.getName() + ">", cause), cause);
+                        break;
+                    }
+                } catch (InterruptedException e) {
+                    throw new SVNCancelException();
+                } finally {
+                    out.print(logs.get(i).toString(StandardCharsets.UTF_8));
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return externals;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the {@code svn:externals} definitions of the working copy, in the order they apply.
+     */
+    private List<Definition> collect(File local) throws SVNException {
+        SVNWCClient wc = task.clientManager.getWCClient();
+        Map<File, String> properties = new LinkedHashMap<>();
+        wc.doGetProperty(local, SVNProperty.EXTERNALS, SVNRevision.WORKING, SVNRevision.WORKING, SVNDepth.INFINITY,
+                new ISVNPropertyHandler() {
+                    @Override
+                    public void handleProperty(File path, SVNPropertyData property) {
+                        properties.put(path, SVNPropertyValue.getPropertyAsString(property.getValue()));
+                    }
+
+                    @Override
+                    public void handleProperty(SVNURL url, SVNPropertyData property) {
+                    }
+
+                    @Override
+                    public void handleProperty(long revision, SVNPropertyData property) {
+                    }
+                }, null);
+        List<Definition> definitions = new ArrayList<>();
+        for (Map.Entry<File, String> property : properties.entrySet()) {
+            File owner = property.getKey();
+            SVNInfo info = wc.doInfo(owner, SVNRevision.WORKING);
+            String ownerPath = local.toPath().relativize(owner.toPath()).toString().replace('\\', '/');
+            for (SVNExternal external : SVNExternal.parseExternals(owner, property.getValue())) {
+                String path = ownerPath.isEmpty() ? external.getPath() : ownerPath + '/' + external.getPath();
+                definitions.add(new Definition(external, external.resolveURL(info.getRepositoryRootURL(), info.getURL()),
+                        new File(owner, external.getPath()), task.location.getLocalDir() + '/' + path));
+            }
+        }
+        return definitions;
+    }
+
+    /**
+     * An external to fetch.
+     */
+    private final class Definition {
+        private final SVNURL url;
+        private final SVNRevision revision;
+        private final SVNRevision pegRevision;
+        private final File target;
+        /**
+         * The path of the external relative to the workspace.
+         */
+        private final String path;
+
+        Definition(SVNExternal external, SVNURL url, File target, String path) {
+            this.url = url;
+            this.revision = external.getRevision();
+            this.pegRevision = external.getPegRevision();
+            this.target = target;
+            this.path = path;
+        }
+
+        /**
+         * Same as {@link SubversionUpdateEventHandler#handleExternal}.
+         */
+        private long getRecordedRevision() {
+            if (SVNRevision.isValidRevisionNumber(revision.getNumber())) {
+                return revision.getNumber();
+            } else if (SVNRevision.isValidRevisionNumber(pegRevision.getNumber())) {
+                return pegRevision.getNumber();
+            }
+            return -1;
+        }
+
+        /**
+         * Tells whether the external is a file external.
+         *
+         * @param floating the revision of an external without one of its own.
+         */
+        boolean isFile(SVNRevision floating) throws SVNException {
+            SVNRevision r = revision.isValid() ? revision : floating;
+            SVNRevision peg = pegRevision.isValid() ? pegRevision : r;
+            SvnClientManager manager = createClientManager();
+            try {
+                return manager.getWCClient().doInfo(url, peg, r).getKind() == SVNNodeKind.FILE;
+            } finally {
+                manager.dispose();
+            }
+        }
+
+        /**
+         * Checks out the external.
+         *
+         * @param floating the revision of an external without one of its own.
+         * @return the external followed by those nested in it.
+         */
+        List<External> fetch(SVNRevision floating, PrintStream out) throws SVNException {
+            SVNRevision r = revision.isValid() ? revision : floating;
+            SVNRevision peg = pegRevision.isValid() ? pegRevision : r;
+            SvnClientManager manager = createClientManager();
+            try {
+                out.println("\n<-- Got one external: " + target.getName() + ", svn url: " + url + " -->");
+                List<External> externals = new ArrayList<>();
+                externals.add(new External(path, url, getRecordedRevision()));
+                SubversionUpdateEventHandler eventHandler = new SubversionUpdateEventHandler(out, externals, target,
+                        path, task.quietOperation, task.location.isCancelProcessOnExternalsFail());
+                SVNUpdateClient svnuc = manager.getUpdateClient();
+                svnuc.setEventHandler(eventHandler);
+                svnuc.setExternalsHandler(eventHandler);
+                svnuc.setIgnoreExternals(false);
+                SvnCheckout checkout = svnuc.getOperationsFactory().createCheckout();
+                checkout.setSource(SvnTarget.fromURL(url, peg));
+                checkout.setSingleTarget(SvnTarget.fromFile(target));
+                checkout.setDepth(SVNDepth.INFINITY);
+                checkout.setRevision(r);
+                checkout.setAllowUnversionedObstructions(true);
+                checkout.setExternalsHandler(SvnCodec.externalsHandler(eventHandler));
+                checkout.setTargetWorkingCopyFormat(workspaceFormat);
+                long fetched = checkout.run();
+                out.println(Messages.SubversionUpdateEventHandler_FetchExternal(url, fetched, target));
+                return externals;
+            } finally {
+                manager.dispose();
+            }
+        }
+
+        private SvnClientManager createClientManager() {
+            return new SvnClientManager(SVNClientManager.newInstance(task.clientManager.getCore().getOptions(),
+                    SubversionSCM.createSvnAuthenticationManager(task.authProvider)), workspaceFormat);
+        }
+    }
+}
@@ -0,0 +1,393 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.scm.subversion;
+
+import jenkins.scm.impl.subversion.RemotableSVNErrorMessage;
+import org.apache.commons.io.output.DeferredFileOutputStream;
+import org.tmatesoft.svn.core.SVNCancelException;
+import org.tmatesoft.svn.core.SVNCommitInfo;
+import org.tmatesoft.svn.core.SVNErrorCode;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNProperty;
+import org.tmatesoft.svn.core.SVNPropertyValue;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.internal.wc.SVNFileUtil;
+import org.tmatesoft.svn.core.internal.wc.SVNTranslator;
+import org.tmatesoft.svn.core.io.ISVNEditor;
+import org.tmatesoft.svn.core.io.diff.SVNDeltaProcessor;
+import org.tmatesoft.svn.core.io.diff.SVNDiffWindow;
+import org.tmatesoft.svn.core.wc.ISVNOptions;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Receives a tree from an update report exchange and writes it out the way {@code svn export} does, without any
+ * working copy metadata.
+ * <p>
+ * The content of each file is received on the thread driving the editor, then translated and written to disk by
+ * a pool of writers, so that disk writes overlap with each other and with the network. The number of files waiting
+ * for a writer is bounded, and only small files are kept in memory while they wait.
+ */
+final class ExportEditor implements ISVNEditor {
+    /**
+     * Files up to this size wait for a writer in memory, larger ones in a temporary file next to their target.
+     */
+    private static final int MEMORY_THRESHOLD = 256 * 1024;
+
+    private final File root;
+    private final SVNURL url;
+    private final String localPath;
+    private final ISVNOptions options;
+    private final PrintStream out;
+    private final boolean quietOperation;
+    private final ExecutorService writers;
+    private final Semaphore pending;
+    private final Deque<String> directories = new ArrayDeque<>();
+    private final Map<String, String> externals = new LinkedHashMap<>();
+    private final List<Future<?>> writes = new ArrayList<>();
+    private final SVNDeltaProcessor deltaProcessor = new SVNDeltaProcessor();
+    private Node file;
+
+    /**
+     * @param root      the local directory the tree is exported to.
+     * @param url       the URL of the tree, for keyword expansion.
+     * @param localPath the path of the tree relative to the workspace, for the console output.
+     * @param writers   the pool writing the files.
+     * @param pending   bounds the number of files waiting for a writer.
+     */
+    ExportEditor(File root, SVNURL url, String localPath, ISVNOptions options, PrintStream out, boolean quietOperation,
+                 ExecutorService writers, Semaphore pending) {
+        this.root = root;
+        this.url = url;
+        this.localPath = localPath;
+        this.options = options;
+        this.out = out;
+        this.quietOperation = quietOperation;
+        this.writers = writers;
+        this.pending = pending;
+    }
+
+    /**
+     * @return the {@code svn:externals} definitions found in the tree, keyed by the path of the directory they are
+     * set on, relative to the root of the tree.
+     */
+    Map<String, String> getExternals() {
+        return externals;
+    }
+
+    @Override
+    public void targetRevision(long revision) {
+    }
+
+    @Override
+    public void openRoot(long revision) throws SVNException {
+        directories.push("");
+        mkdirs(root);
+    }
+
+    @Override
+    public void deleteEntry(String path, long revision) {
+    }
+
+    @Override
+    public void absentDir(String path) {
+    }
+
+    @Override
+    public void absentFile(String path) {
+    }
+
+    @Override
+    public void addDir(String path, String copyFromPath, long copyFromRevision) throws SVNException {
+        directories.push(path);
+        mkdirs(new File(root, path));
+        print(path);
+    }
+
+    @Override
+    public void openDir(String path, long revision) {
+        directories.push(path);
+    }
+
+    @Override
+    public void changeDirProperty(String name, SVNPropertyValue value) {
+        if (SVNProperty.EXTERNALS.equals(name) && value != null) {
+            externals.put(directories.getFirst(), SVNPropertyValue.getPropertyAsString(value));
+        }
+    }
+
+    @Override
+    public void closeDir() {
+        directories.pop();
+    }
+
+    @Override
+    public void addFile(String path, String copyFromPath, long copyFromRevision) {
+        file = new Node(path);
+    }
+
+    @Override
+    public void openFile(String path, long revision) {
+        file = new Node(path);
+    }
+
+    @Override
+    public void changeFileProperty(String path, String propertyName, SVNPropertyValue propertyValue) {
+        if (file != null && propertyValue != null) {
+            file.properties.put(propertyName, SVNPropertyValue.getPropertyAsString(propertyValue));
+        }
+    }
+
+    @Override
+    public void applyTextDelta(String path, String baseChecksum) {
+        file.content = DeferredFileOutputStream.builder()
+                .setThreshold(MEMORY_THRESHOLD)
+                .setPrefix(".svn-export")
+                .setSuffix(".tmp")
+                .setDirectory(new File(root, path).getParentFile())
+                .get();
+        deltaProcessor.applyTextDelta(SVNFileUtil.DUMMY_IN, file.content, false);
+    }
+
+    @Override
+    public OutputStream textDeltaChunk(String path, SVNDiffWindow diffWindow) throws SVNException {
+        return deltaProcessor.textDeltaChunk(diffWindow);
+    }
+
+    @Override
+    public void textDeltaEnd(String path) {
+        deltaProcessor.textDeltaEnd();
+    }
+
+    @Override
+    public void closeFile(String path, String textChecksum) throws SVNException {
+        final Node closed = file;
+        file = null;
+        if (Thread.interrupted()) {
+            closed.discard();
+            throw new SVNCancelException();
+        }
+        try {
+            if (closed.content != null) {
+                closed.content.close();
+            }
+            pending.acquire();
+        } catch (IOException e) {
+            closed.discard();
+            throw error(e);
+        } catch (InterruptedException e) {
+            closed.discard();
+            throw new SVNCancelException();
+        }
+        try {
+            writes.add(writers.submit(() -> {
+                try {
+                    write(closed);
+                    return null;
+                } finally {
+                    pending.release();
+                }
+            }));
+        } catch (RuntimeException e) {
+            pending.release();
+            closed.discard();
+            throw e;
+        }
+        print(path);
+    }
+
+    @Override
+    public SVNCommitInfo closeEdit() {
+        return null;
+    }
+
+    @Override
+    public void abortEdit() {
+    }
+
+    /**
+     * Waits for the files received so far to be written.
+     *
+     * @throws SVNException if one of them could not be.
+     */
+    void finish() throws SVNException {
+        SVNException failure = null;
+        for (Future<?> write : writes) {
+            try {
+                write.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof SVNException
+                            ? (SVNException) e.getCause()
+                            : e.getCause() instanceof IOException ? error((IOException) e.getCause())
+                            : new SVNException(new RemotableSVNErrorMessage(SVNErrorCode.IO_ERROR, e.getCause()), e.getCause());
+                }
+            } catch (InterruptedException e) {
+                throw new SVNCancelException();
+            }
+        }
+        writes.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Writes a file on one of the writers, translating end of lines and keywords and applying
+     * {@code svn:executable} and {@code svn:special} as {@code svn export} does.
+     */
+    private void write(Node node) throws IOException, SVNException {
+        File target = new File(root, node.path);
+        Map<String, String> properties = node.properties;
+        try {
+            if (properties.containsKey(SVNProperty.SPECIAL) && link(node, target)) {
+                return;
+            }
+            String eolStyle = properties.get(SVNProperty.EOL_STYLE);
+            String keywords = properties.get(SVNProperty.KEYWORDS);
+            if (eolStyle == null && keywords == null) {
+                if (node.content == null) {
+                    Files.write(target.toPath(), new byte[0]);
+                } else if (node.content.isInMemory()) {
+                    Files.write(target.toPath(), node.content.getData());
+                } else {
+                    Files.move(node.content.getFile().toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } else {
+                byte[] eol = eolStyle != null ? SVNTranslator.getEOL(eolStyle, options) : null;
+                Map<String, byte[]> keywordsMap = keywords != null
+                        ? SVNTranslator.computeKeywords(keywords, url.appendPath(node.path, false).toString(),
+                                properties.get(SVNProperty.LAST_AUTHOR), properties.get(SVNProperty.COMMITTED_DATE),
+                                properties.get(SVNProperty.COMMITTED_REVISION), options)
+                        : null;
+                String charset = SVNTranslator.getCharset(properties.get(SVNProperty.CHARSET),
+                        properties.get(SVNProperty.MIME_TYPE), target.getPath(), options);
+                try (InputStream in = node.open();
+                     OutputStream os = SVNTranslator.getTranslatingOutputStream(Files.newOutputStream(target.toPath()),
+                             charset, eol, true, keywordsMap, true)) {
+                    in.transferTo(os);
+                }
+            }
+            if (properties.containsKey(SVNProperty.EXECUTABLE)) {
+                target.setExecutable(true);
+            }
+        } finally {
+            node.discard();
+        }
+    }
+
+    /**
+     * Creates the symbolic link an {@code svn:special} file stands for.
+     *
+     * @return {@code false} if it is not a link or the platform cannot create one, the file is then written as is.
+     */
+    private static boolean link(Node node, File target) throws IOException {
+        String content;
+        try (InputStream in = node.open()) {
+            content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        if (!content.startsWith("link ")) {
+            return false;
+        }
+        try {
+            Files.createSymbolicLink(target.toPath(), Paths.get(content.substring("link ".length())));
+            return true;
+        } catch (UnsupportedOperationException | IOException e) {
+            return false;
+        }
+    }
+
+    private void print(String path) {
+        if (!quietOperation) {
+            out.println("A         " + (localPath.isEmpty() ? path : localPath + '/' + path));
+        }
+    }
+
+    private static void mkdirs(File dir) throws SVNException {
+        try {
+            Files.createDirectories(dir.toPath());
+        } catch (IOException e) {
+            throw error(e);
+        }
+    }
+
+    private static SVNException error(IOException e) {
+        return new SVNException(new RemotableSVNErrorMessage(SVNErrorCode.IO_ERROR, e.getMessage(), e), e);
+    }
+
+    /**
+     * A file being received.
+     */
+    private static final class Node {
+        private final String path;
+        private final Map<String, String> properties = new HashMap<>();
+        private DeferredFileOutputStream content;
+
+        Node(String path) {
+            this.path = path;
+        }
+
+        InputStream open() throws IOException {
+            if (content == null) {
+                return new ByteArrayInputStream(new byte[0]);
+            }
+            return content.isInMemory()
+                    ? new ByteArrayInputStream(content.getData())
+                    : Files.newInputStream(content.getFile().toPath());
+        }
+
+        /**
+         * Deletes the temporary file holding the content, if it was not moved to its target.
+         */
+        void discard() {
+            if (content != null && !content.isInMemory()) {
+                Path temp = content.getFile().toPath();
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    // left behind in the workspace, which is thrown away anyway
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.scm.subversion;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.scm.SubversionSCM.External;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.tmatesoft.svn.core.SVNCancelException;
+import org.tmatesoft.svn.core.SVNDepth;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNNodeKind;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.internal.util.SVNPathUtil;
+import org.tmatesoft.svn.core.internal.wc.SVNExternal;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.wc.SVNInfo;
+import org.tmatesoft.svn.core.wc.SVNRevision;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * {@link WorkspaceUpdater} that exports a fresh copy, without the working copy metadata and pristine copies a check
+ * out writes, for workspaces that are thrown away after each build.
+ * <p>
+ * The files are written to disk by {@value #DEFAULT_WRITERS} threads, or as many as the
+ * {@code hudson.scm.subversion.ExportUpdater.writers} system property of the agent says. The revisions and externals
+ * of what was exported are kept by the task, so that {@code revision.txt} and the changelog do not need a working
+ * copy to read them from.
+ */
+public class ExportUpdater extends WorkspaceUpdater {
+    private static final long serialVersionUID = 1L;
+
+    static final int DEFAULT_WRITERS = 4;
+
+    /**
+     * Number of threads writing the exported files on the agent.
+     */
+    static int WRITERS = Math.max(1, Integer.getInteger(ExportUpdater.class.getName() + ".writers", DEFAULT_WRITERS));
+
+    @DataBoundConstructor
+    public ExportUpdater() {}
+
+    @Override
+    public UpdateTask createTask(int workspaceFormat) {
+        return new TaskImpl();
+    }
+
+    @Extension
+    public static class DescriptorImpl extends WorkspaceUpdaterDescriptor {
+        @Override
+        public String getDisplayName() {
+            return Messages.ExportUpdater_DisplayName();
+        }
+    }
+
+    @Restricted(NoExternalUse.class)
+    public static class TaskImpl extends UpdateTask {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * What {@code svn info} would say of the exported location and externals if they were working copies, keyed
+         * by their path relative to the workspace.
+         */
+        private transient Map<String, SVNInfo> exported;
+        private transient ExecutorService writers;
+        private transient Semaphore pending;
+        /**
+         * The revision of the externals without one of their own, the date the location is exported at if any, as in
+         * a check out.
+         */
+        private transient SVNRevision floating;
+
+        /**
+         * @return the information of the location and the externals that were exported, keyed by their path relative
+         * to the workspace.
+         */
+        public Map<String, SVNInfo> getExported() {
+            return exported == null ? Collections.emptyMap() : Collections.unmodifiableMap(exported);
+        }
+
+        @Override
+        public List<External> perform() throws IOException, InterruptedException {
+            final List<External> externals = new ArrayList<>();
+            exported = new LinkedHashMap<>();
+
+            listener.getLogger().println("Cleaning local Directory " + location.getLocalDir());
+            Util.deleteContentsRecursive(new File(ws, location.getLocalDir()));
+
+            writers = Executors.newFixedThreadPool(WRITERS,
+                    new NamingThreadFactory(new DaemonThreadFactory(), ExportUpdater.class.getSimpleName() + ".writer"));
+            pending = new Semaphore(WRITERS * 4);
+            try {
+                SVNRevision r = getRevision(location);
+                floating = r.getDate() != null ? r : SVNRevision.HEAD;
+                listener.getLogger().println("Exporting " + location.getSVNURL().toString() + " at revision " + r
+                        + (quietOperation ? " --quiet" : ""));
+                if (sparseCheckout != null) {
+                    exportSparse(r, externals);
+                } else {
+                    export(location.getSVNURL(), SVNRevision.HEAD, r, location.getSvnDepthForCheckout(),
+                            location.getLocalDir(), externals);
+                }
+            } catch (SVNCancelException e) {
+                if (isAuthenticationFailedError(e)) {
+                    e.printStackTrace(listener.error("Failed to export " + location.remote));
+                    return null;
+                } else {
+                    listener.error("Subversion export has been canceled");
+                    throw (InterruptedException) new InterruptedException().initCause(e);
+                }
+            } catch (SVNException e) {
+                e.printStackTrace(listener.error("Failed to export " + location.remote));
+                throw new IOException("Failed to export " + location.remote, e);
+            } finally {
+                writers.shutdownNow();
+            }
+
+            return externals;
+        }
+
+        /**
+         * Exports the root of the location alone, then the directories of the {@link #sparseCheckout} within it at the
+         * same revision.
+         */
+        private void exportSparse(SVNRevision r, List<External> externals) throws SVNException {
+            SVNInfo info = clientManager.getWCClient().doInfo(location.getSVNURL(), SVNRevision.HEAD, r);
+            SVNRevision revision = SVNRevision.create(info.getRevision().getNumber());
+            List<String> paths = sparseCheckout.resolve(info.getURL(), info.getRepositoryRootURL());
+            if (paths == null) {
+                export(info.getURL(), revision, revision, location.getSvnDepthForCheckout(), location.getLocalDir(),
+                        externals);
+                return;
+            }
+            export(info.getURL(), revision, revision, SVNDepth.EMPTY, location.getLocalDir(), externals);
+            List<String> existing = new ArrayList<>(paths.size());
+            SVNRepository repository = clientManager.createRepository(info.getURL(), true);
+            try {
+                for (String path : paths) {
+                    if (repository.checkPath(path, revision.getNumber()) == SVNNodeKind.NONE) {
+                        // like a sparse checkout, which skips what does not exist
+                        listener.getLogger().println("Skipped " + path + ", which does not exist at revision " + revision);
+                    } else {
+                        existing.add(path);
+                    }
+                }
+            } finally {
+                repository.closeSession();
+            }
+            for (String path : existing) {
+                export(info.getURL().appendPath(path, false), revision, revision, SVNDepth.INFINITY,
+                        SVNPathUtil.append(location.getLocalDir(), path), externals);
+            }
+        }
+
+        /**
+         * Exports a directory or a file, then the externals defined in it.
+         *
+         * @param path      where to, relative to the workspace.
+         * @param externals collects the externals that were exported.
+         */
+        private void export(SVNURL url, SVNRevision peg, SVNRevision revision, SVNDepth depth, String path,
+                            List<External> externals) throws SVNException {
+            SVNInfo info = clientManager.getWCClient().doInfo(url, peg, revision);
+            long number = info.getRevision().getNumber();
+            exported.put(path, info);
+
+            File local = new File(ws, path);
+            boolean isFile = info.getKind() == SVNNodeKind.FILE;
+            SVNURL root = isFile ? info.getURL().removePathTail() : info.getURL();
+            SVNRepository repository = clientManager.createRepository(root, true);
+            ExportEditor editor = new ExportEditor(isFile ? local.getParentFile() : local, root,
+                    isFile ? SVNPathUtil.removeTail(path) : path, clientManager.getCore().getOptions(),
+                    listener.getLogger(), quietOperation, writers, pending);
+            try {
+                repository.update(number, isFile ? SVNPathUtil.tail(info.getURL().getPath()) : null, depth, false,
+                        reporter -> {
+                            // nothing local, so everything is sent
+                            reporter.setPath("", null, number, depth, true);
+                            reporter.finishReport();
+                        }, editor);
+                editor.finish();
+            } finally {
+                repository.closeSession();
+            }
+            listener.getLogger().println("Exported revision " + number + ".");
+
+            if (location.isIgnoreExternalsOption() || depth != SVNDepth.INFINITY) {
+                // a check out only fetches externals at infinite depth
+                return;
+            }
+            for (Map.Entry<String, String> definitions : editor.getExternals().entrySet()) {
+                String owner = definitions.getKey();
+                for (SVNExternal external : SVNExternal.parseExternals(owner, definitions.getValue())) {
+                    exportExternal(external, info.getRepositoryRootURL(), root.appendPath(owner, false),
+                            SVNPathUtil.append(SVNPathUtil.append(path, owner), external.getPath()), externals);
+                }
+            }
+        }
+
+        private void exportExternal(SVNExternal external, SVNURL repositoryRoot, SVNURL owner, String path,
+                                    List<External> externals) throws SVNException {
+            SVNURL url = external.resolveURL(repositoryRoot, owner);
+            SVNRevision revision = external.getRevision();
+            SVNRevision peg = external.getPegRevision();
+            long number = -1;
+            if (SVNRevision.isValidRevisionNumber(revision.getNumber())) {
+                number = revision.getNumber();
+            } else if (SVNRevision.isValidRevisionNumber(peg.getNumber())) {
+                number = peg.getNumber();
+            }
+            listener.getLogger().println(Messages.SubversionUpdateEventHandler_FetchExternal(url, revision, path));
+            try {
+                SVNRevision r = revision.isValid() ? revision : floating;
+                export(url, peg.isValid() ? peg : r, r, SVNDepth.INFINITY, path, externals);
+            } catch (SVNCancelException e) {
+                throw e;
+            } catch (SVNException e) {
+                if (location.isCancelProcessOnExternalsFail()) {
+                    throw e;
+                }
+                listener.getLogger().println(Messages.SubversionUpdateEventHandler_FetchExternal(url, revision, path)
+                        + " failed!");
+                return;
+            }
+            externals.add(new External(path, url, number));
+        }
+    }
+}
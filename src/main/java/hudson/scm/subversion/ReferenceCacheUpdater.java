@@ -0,0 +1,259 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.scm.subversion;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.scm.SubversionSCM.External;
+import hudson.scm.SubversionWorkspaceSelector;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.tmatesoft.svn.core.SVNCancelException;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.internal.wc17.db.ISVNWCDb;
+import org.tmatesoft.svn.core.wc.SVNRevision;
+import org.tmatesoft.svn.core.wc.SVNUpdateClient;
+import org.tmatesoft.svn.core.wc2.SvnCheckout;
+import org.tmatesoft.svn.core.wc2.SvnTarget;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link WorkspaceUpdater} that does "svn update" as much as possible, like {@link UpdateUpdater}, but gets fresh
+ * working copies by copying a pristine working copy kept by the agent for each repository and path, brought up to date
+ * first, rather than by checking out the whole tree from the server.
+ * <p>
+ * The pristine working copies are kept in the directory given by the {@code hudson.scm.subversion.ReferenceCacheUpdater.cacheDir}
+ * system property of the agent, {@code .svn-reference-cache} in the home directory of the agent user by default. They
+ * are deleted once unused for the number of milliseconds given by the {@code hudson.scm.subversion.ReferenceCacheUpdater.maxAge}
+ * system property of the agent, 30 days by default.
+ */
+public class ReferenceCacheUpdater extends WorkspaceUpdater {
+    private static final long serialVersionUID = 1L;
+
+    @DataBoundConstructor
+    public ReferenceCacheUpdater() {}
+
+    @Override
+    public UpdateTask createTask(int workspaceFormat) {
+        return new TaskImpl(workspaceFormat);
+    }
+
+    static File getCacheDir() {
+        String dir = System.getProperty(ReferenceCacheUpdater.class.getName() + ".cacheDir");
+        return dir != null ? new File(dir) : new File(System.getProperty("user.home"), ".svn-reference-cache");
+    }
+
+    static long getMaxAge() {
+        return Long.getLong(ReferenceCacheUpdater.class.getName() + ".maxAge", TimeUnit.DAYS.toMillis(30));
+    }
+
+    public static class TaskImpl extends UpdateUpdater.TaskImpl {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Serializes the use of each reference working copy by the builds of this agent, a file lock keeps out
+         * those of other agents sharing the cache directory.
+         */
+        private static final Map<String, Object> LOCKS = new ConcurrentHashMap<>();
+
+        /**
+         * When each cache directory was last pruned by this agent.
+         */
+        private static final Map<String, Long> PRUNED = new ConcurrentHashMap<>();
+
+        private int workspaceFormat;
+        /**
+         * Whether the working copy was copied from the reference, so that it is checked out if it still cannot
+         * be updated.
+         */
+        private transient boolean copied;
+
+        public TaskImpl(int workspaceFormat) {
+            super(workspaceFormat);
+            this.workspaceFormat = workspaceFormat;
+        }
+
+        @Override
+        protected List<External> freshCheckout() throws IOException, InterruptedException {
+            if (copied || sparseCheckout != null) {
+                // a sparse working copy fetches little enough not to need a reference
+                return super.freshCheckout();
+            }
+            File reference;
+            try {
+                reference = getReference();
+            } catch (SVNException e) {
+                listener.getLogger().println("Could not locate the reference working copy of " + location.remote + ": " + e.getMessage());
+                return super.freshCheckout();
+            }
+            File local = new File(ws, location.getLocalDir());
+            synchronized (LOCKS.computeIfAbsent(reference.getAbsolutePath(), k -> new Object())) {
+                Files.createDirectories(reference.getParentFile().toPath());
+                Path lockFile = new File(reference.getPath() + ".lock").toPath();
+                try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                     FileLock lock = channel.lock()) {
+                    // the modification time of the lock records the last use
+                    Files.setLastModifiedTime(lockFile, FileTime.fromMillis(System.currentTimeMillis()));
+                    try {
+                        refresh(reference);
+                        listener.getLogger().println("Cleaning local Directory " + location.getLocalDir());
+                        Util.deleteContentsRecursive(local);
+                        listener.getLogger().println("Copying reference working copy " + reference + " to " + location.getLocalDir());
+                        copy(reference.toPath(), local.toPath());
+                        copied = true;
+                    } catch (SVNCancelException e) {
+                        // failed authentication or abort, left to the regular check out to report
+                    } catch (SVNException e) {
+                        listener.getLogger().println("Could not bring the reference working copy " + reference + " up to date: " + e.getMessage());
+                        Util.deleteRecursive(reference);
+                    }
+                }
+            }
+            prune();
+            if (!copied) {
+                return super.freshCheckout();
+            }
+            // only what changed since the reference was brought up to date is left to fetch, and the externals are recorded
+            return perform();
+        }
+
+        /**
+         * Deletes the reference working copies left unused for longer than {@link #getMaxAge()}, at most once an hour.
+         * Their lock files are kept, as deleting them could let two builds lock different files for the same working
+         * copy.
+         */
+        private void prune() {
+            File cacheDir = getCacheDir();
+            long now = System.currentTimeMillis();
+            Long lastPruned = PRUNED.get(cacheDir.getAbsolutePath());
+            if (lastPruned != null && now - lastPruned < TimeUnit.HOURS.toMillis(1)) {
+                return;
+            }
+            PRUNED.put(cacheDir.getAbsolutePath(), now);
+            long oldest = now - getMaxAge();
+            File[] lockFiles = cacheDir.listFiles((dir, name) -> name.endsWith(".lock"));
+            if (lockFiles == null) {
+                return;
+            }
+            for (File lockFile : lockFiles) {
+                File reference = new File(lockFile.getParentFile(),
+                        lockFile.getName().substring(0, lockFile.getName().length() - ".lock".length()));
+                if (lockFile.lastModified() >= oldest || !reference.exists()) {
+                    continue;
+                }
+                synchronized (LOCKS.computeIfAbsent(reference.getAbsolutePath(), k -> new Object())) {
+                    try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.WRITE);
+                         FileLock lock = channel.tryLock()) {
+                        // in use by another agent, or used since it was listed
+                        if (lock != null && lockFile.lastModified() < oldest) {
+                            listener.getLogger().println("Deleting unused reference working copy " + reference);
+                            Util.deleteRecursive(reference);
+                        }
+                    } catch (IOException e) {
+                        listener.getLogger().println("Could not delete unused reference working copy " + reference + ": " + e.getMessage());
+                    }
+                }
+            }
+        }
+
+        /**
+         * Locates the reference working copy of the location, which depends on its URL but also on everything that
+         * changes the content of the working copy, and on the credentials it was read with so that it is not shared
+         * with builds that may not read it. Only what the location already knows is used, so that no session is
+         * opened just to name the reference.
+         */
+        private File getReference() throws SVNException {
+            String key = location.getSVNURL() + "\n" + location.getSvnDepthForCheckout() + '\n'
+                    + location.isIgnoreExternalsOption() + '\n' + workspaceFormat + '\n'
+                    + Util.fixNull(location.credentialsId);
+            return new File(getCacheDir(), Util.getDigestOf(key));
+        }
+
+        /**
+         * Brings the reference working copy to the revision to build, checking it out if there is none yet.
+         */
+        private void refresh(File reference) throws SVNException, IOException {
+            SVNUpdateClient svnuc = clientManager.getUpdateClient();
+            svnuc.setEventHandler(null);
+            svnuc.setIgnoreExternals(location.isIgnoreExternalsOption());
+            SVNRevision r = getRevision(location);
+            if (new File(reference, ".svn").isDirectory()) {
+                listener.getLogger().println("Updating reference working copy " + reference + " at revision " + r);
+                svnuc.doUpdate(reference, r, location.getSvnDepthForUpdate(), true, true);
+                return;
+            }
+            listener.getLogger().println("Checking out reference working copy " + reference + " at revision " + r);
+            Util.deleteRecursive(reference);
+            SvnCheckout checkout = svnuc.getOperationsFactory().createCheckout();
+            checkout.setSource(SvnTarget.fromURL(location.getSVNURL(), SVNRevision.HEAD));
+            checkout.setSingleTarget(SvnTarget.fromFile(reference));
+            checkout.setDepth(location.getSvnDepthForCheckout());
+            checkout.setRevision(r);
+            checkout.setIgnoreExternals(location.isIgnoreExternalsOption());
+            // same workarounds as CheckoutUpdater, for JENKINS-26458 and SVNKIT-430
+            int format = workspaceFormat == SubversionWorkspaceSelector.OLD_WC_FORMAT_17 ? ISVNWCDb.WC_FORMAT_17 : workspaceFormat;
+            checkout.setTargetWorkingCopyFormat(format);
+            checkout.run();
+        }
+
+        private static void copy(final Path source, final Path target) throws IOException {
+            Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    Files.createDirectories(target.resolve(source.relativize(dir)));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.copy(file, target.resolve(source.relativize(file)), StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+    }
+
+    @Extension
+    public static class DescriptorImpl extends WorkspaceUpdaterDescriptor {
+        @Override
+        public String getDisplayName() {
+            return Messages.ReferenceCacheUpdater_DisplayName();
+        }
+    }
+}
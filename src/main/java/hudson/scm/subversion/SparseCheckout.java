@@ -0,0 +1,237 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.scm.subversion;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import org.tmatesoft.svn.core.SVNDepth;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.wc.SVNRevision;
+import org.tmatesoft.svn.core.wc.SVNUpdateClient;
+import org.tmatesoft.svn.core.wc.SVNWCClient;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The shape of a sparse working copy: the root of each module location is checked out with {@link SVNDepth#EMPTY}
+ * and only the subtrees under the given directories are checked out in full, along with the directories leading to
+ * them.
+ * <p>
+ * The directories are paths from the repository root, like included regions, so that the same list applies to every
+ * module location and is resolved against each of them on the agent, where the repository root is known.
+ */
+public final class SparseCheckout implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Paths from the repository root, starting with a slash but not ending with one, the root itself being the empty
+     * string.
+     */
+    private final List<String> directories;
+
+    private SparseCheckout(List<String> directories) {
+        this.directories = directories;
+    }
+
+    /**
+     * Creates the shape that checks out the given directories.
+     *
+     * @param paths paths from the repository root, such as {@code /trunk/myapp/c/library1}.
+     */
+    public static SparseCheckout of(String... paths) {
+        List<String> directories = new ArrayList<>(paths.length);
+        for (String path : paths) {
+            path = path.trim();
+            if (!path.isEmpty()) {
+                directories.add(normalize(path));
+            }
+        }
+        return new SparseCheckout(directories);
+    }
+
+    /**
+     * Creates the shape that checks out everything the given included regions may match, that is the deepest
+     * directory each of them is known to be confined to.
+     *
+     * @param regions the regular expressions of the included regions, matched against paths from the repository
+     *                root.
+     */
+    public static SparseCheckout fromIncludedRegions(String... regions) {
+        List<String> directories = new ArrayList<>(regions.length);
+        for (String region : regions) {
+            region = region.trim();
+            if (!region.isEmpty()) {
+                String prefix = literalPrefix(region);
+                directories.add(normalize(prefix.substring(0, Math.max(0, prefix.lastIndexOf('/')))));
+            }
+        }
+        return new SparseCheckout(directories);
+    }
+
+    /**
+     * Gets the longest string every match of a regular expression starts with.
+     */
+    static String literalPrefix(String regex) {
+        if (regex.matches(".*(?<!\\\\)\\|.*")) {
+            // an alternation may match anywhere
+            return "";
+        }
+        StringBuilder prefix = new StringBuilder();
+        int i = regex.startsWith("^") ? 1 : 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\' && i + 1 < regex.length() && !Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                // an escaped character stands for itself
+                c = regex.charAt(++i);
+            } else if (c == '\\' || ".[](){}*+?^$".indexOf(c) >= 0) {
+                break;
+            }
+            i++;
+            if (i < regex.length() && "?*{".indexOf(regex.charAt(i)) >= 0) {
+                // an optional character is not part of every match
+                break;
+            }
+            prefix.append(c);
+        }
+        return prefix.toString();
+    }
+
+    private static String normalize(String path) {
+        path = path.replace('\\', '/');
+        while (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return path.isEmpty() || path.startsWith("/") ? path : '/' + path;
+    }
+
+    public List<String> getDirectories() {
+        return Collections.unmodifiableList(directories);
+    }
+
+    /**
+     * Resolves the directories against a module location.
+     *
+     * @param location       the URL of the module location.
+     * @param repositoryRoot the URL of the root of its repository.
+     * @return the directories to check out in full, relative to the module location and none within another, or
+     * {@code null} if one of them is the module location itself or one of its ancestors, so that the whole module
+     * location is needed.
+     */
+    @CheckForNull
+    public List<String> resolve(SVNURL location, SVNURL repositoryRoot) {
+        String path = location.getPath().substring(repositoryRoot.getPath().length());
+        while (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        Set<String> relative = new TreeSet<>();
+        for (String directory : directories) {
+            if (path.equals(directory) || path.startsWith(directory + '/')) {
+                return null;
+            }
+            if (directory.startsWith(path + '/')) {
+                relative.add(directory.substring(path.length() + 1));
+            }
+        }
+        List<String> result = new ArrayList<>(relative.size());
+        for (String candidate : relative) {
+            // sorted, so any ancestor comes first
+            if (result.isEmpty() || !candidate.startsWith(result.get(result.size() - 1) + '/')) {
+                result.add(candidate);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Brings a working copy whose root is checked out with {@link SVNDepth#EMPTY} to the shape: checks out the
+     * directories that are missing, along with their parents, and excludes whatever else was checked out in the
+     * directories leading to them. The directories that are already there are left to an update of the root with
+     * {@link SVNDepth#UNKNOWN}, which keeps the depth of each of them.
+     *
+     * @param paths    the directories, as {@linkplain #resolve(SVNURL, SVNURL) resolved}.
+     * @param revision the revision of the rest of the working copy.
+     */
+    static void apply(SVNUpdateClient svnuc, SVNWCClient svnwc, File local, List<String> paths, SVNRevision revision,
+                      PrintStream logger) throws SVNException {
+        Set<String> wanted = new HashSet<>(paths);
+        Set<String> parents = new LinkedHashSet<>();
+        parents.add("");
+        List<File> missing = new ArrayList<>();
+        for (String path : paths) {
+            for (int i = path.indexOf('/'); i >= 0; i = path.indexOf('/', i + 1)) {
+                parents.add(path.substring(0, i));
+            }
+            File dir = new File(local, path);
+            if (!isVersioned(svnwc, dir)) {
+                missing.add(dir);
+            }
+        }
+        List<File> excluded = new ArrayList<>();
+        for (String parent : parents) {
+            File[] children = new File(local, parent).listFiles();
+            if (children == null) {
+                continue;
+            }
+            for (File child : children) {
+                String path = parent.isEmpty() ? child.getName() : parent + '/' + child.getName();
+                if (!child.getName().equals(".svn") && !wanted.contains(path) && !parents.contains(path)
+                        && isVersioned(svnwc, child)) {
+                    excluded.add(child);
+                }
+            }
+        }
+        if (!excluded.isEmpty()) {
+            logger.println("Excluding " + excluded.size() + " path(s) no longer in the sparse checkout");
+            svnuc.doUpdate(excluded.toArray(new File[0]), revision, SVNDepth.EXCLUDE, true, true, false);
+        }
+        if (!missing.isEmpty()) {
+            logger.println("Checking out " + missing.size() + " sparse path(s)");
+            svnuc.doUpdate(missing.toArray(new File[0]), revision, SVNDepth.INFINITY, true, true, true);
+        }
+    }
+
+    private static boolean isVersioned(SVNWCClient svnwc, File file) {
+        if (!file.exists()) {
+            return false;
+        }
+        try {
+            svnwc.doInfo(file, SVNRevision.WORKING);
+            return true;
+        } catch (SVNException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return directories.toString();
+    }
+}
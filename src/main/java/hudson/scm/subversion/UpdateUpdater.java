@@ -71,6 +71,11 @@ public class UpdateUpdater extends WorkspaceUpdater {
         private static final long serialVersionUID = -5766470969352844330L;
 
         private final int workspaceFormat;
+        /**
+         * The directories to check out in full when the working copy is sparse, as resolved against the working copy
+         * by {@link #getSvnCommandToUse()}.
+         */
+        private transient List<String> sparsePaths;
 
         public TaskImpl(int workspaceFormat) {
             this.workspaceFormat = workspaceFormat;
@@ -103,6 +108,13 @@ public class UpdateUpdater extends WorkspaceUpdater {
                         return SvnCommandToUse.CHECKOUT;
                     }
                 }
+                sparsePaths = sparseCheckout != null
+                        ? sparseCheckout.resolve(location.getSVNURL(), svnInfo.getRepositoryRootURL())
+                        : null;
+                if (sparsePaths != null && svnInfo.getDepth() != SVNDepth.EMPTY) {
+                    listener.getLogger().println("Checking out a fresh workspace because " + module + " is not a sparse working copy");
+                    return SvnCommandToUse.CHECKOUT;
+                }
             } catch (SVNException e) {
                 if (e.getErrorMessage().getErrorCode() == SVNErrorCode.WC_NOT_DIRECTORY) {
                     listener.getLogger().println("Checking out a fresh workspace because there's no workspace at " + module);
@@ -135,7 +147,7 @@ public class UpdateUpdater extends WorkspaceUpdater {
             SvnCommandToUse svnCommand = getSvnCommandToUse();
             
             if (svnCommand == SvnCommandToUse.CHECKOUT) {
-                return delegateTo(new CheckoutUpdater(), workspaceFormat);
+                return freshCheckout();
             }
 
             final SVNUpdateClient svnuc = clientManager.getUpdateClient();
@@ -156,23 +168,31 @@ public class UpdateUpdater extends WorkspaceUpdater {
                 
                 svnuc.setIgnoreExternals(location.isIgnoreExternalsOption());
                 preUpdate(location, local);
-                SVNDepth svnDepth = location.getSvnDepthForUpdate();
-                
+                // a sparse working copy keeps the depth of each of its directories
+                SVNDepth svnDepth = sparsePaths != null ? SVNDepth.UNKNOWN : location.getSvnDepthForUpdate();
+                boolean depthIsSticky = sparsePaths == null;
+                long revision = -1;
+
                 switch (svnCommand) {
                     case UPDATE:
                         listener.getLogger().println("Updating " + location.remote + " at revision "
                             + revisionName + (quietOperation ? " --quiet" : ""));
-                        svnuc.doUpdate(local.getCanonicalFile(), r, svnDepth, true, true);
+                        revision = svnuc.doUpdate(local.getCanonicalFile(), r, svnDepth, true, depthIsSticky);
                         break;
                     case SWITCH:
                         listener.getLogger().println("Switching to " + location.remote + " at revision "
                             + revisionName + (quietOperation ? " --quiet" : ""));
-                        svnuc.doSwitch(local.getCanonicalFile(), location.getSVNURL(), r, r, svnDepth, true, true, true);
+                        revision = svnuc.doSwitch(local.getCanonicalFile(), location.getSVNURL(), r, r, svnDepth, true, depthIsSticky, true);
                         break;
                     case CHECKOUT:
                         // This case is handled by the (svnCommand == SvnCommandToUse.CHECKOUT) above.
                         break;
                 }
+
+                if (sparsePaths != null) {
+                    SparseCheckout.apply(svnuc, clientManager.getWCClient(), local.getCanonicalFile(), sparsePaths,
+                            SVNRevision.create(revision), listener.getLogger());
+                }
             } catch (SVNCancelException e) {
                 e.printStackTrace(listener.getLogger());
                 if (isAuthenticationFailedError(e)) {
@@ -188,20 +208,20 @@ public class UpdateUpdater extends WorkspaceUpdater {
                     if (errorCode == SVNErrorCode.WC_LOCKED) {
                         // work space locked. try fresh check out
                         listener.getLogger().println("Workspace appear to be locked, so getting a fresh workspace");
-                        return delegateTo(new CheckoutUpdater(), workspaceFormat);
+                        return freshCheckout();
                     }
                     if (errorCode == SVNErrorCode.WC_OBSTRUCTED_UPDATE) {
                         // HUDSON-1882. If existence of local files cause an update to fail,
                         // revert to fresh check out
                         listener.getLogger().println(e.getMessage()); // show why this happened. Sometimes this is caused by having a build artifact in the repository.
                         listener.getLogger().println("Updated failed due to local files. Getting a fresh workspace");
-                        return delegateTo(new CheckoutUpdater(), workspaceFormat);
+                        return freshCheckout();
                     }
                     if (errorCode == SVNErrorCode.WC_CORRUPT_TEXT_BASE || errorCode == SVNErrorCode.WC_CORRUPT || errorCode == SVNErrorCode.WC_UNWIND_EMPTY) {
                         // JENKINS-14550. if working copy is corrupted, revert to fresh check out
                         listener.getLogger().println(e.getMessage()); // show why this happened. Sometimes this is caused by having a build artifact in the repository.
                         listener.getLogger().println("Updated failed due to working copy corruption. Getting a fresh workspace");
-                        return delegateTo(new CheckoutUpdater(), workspaceFormat);
+                        return freshCheckout();
                     }
                     // trouble-shooting probe for #591
                     if (errorCode == SVNErrorCode.WC_NOT_LOCKED) {
@@ -209,7 +229,7 @@ public class UpdateUpdater extends WorkspaceUpdater {
                         if (instance != null) {
                             listener.getLogger().println("Polled jobs are " + instance.getDescriptorByType(SCMTrigger.DescriptorImpl.class).getItemsBeingPolled());
                         }
-                        return delegateTo(new CheckoutUpdater(), workspaceFormat);
+                        return freshCheckout();
                     }
 
                   // recurse as long as we encounter nested SVNException
@@ -235,6 +255,16 @@ public class UpdateUpdater extends WorkspaceUpdater {
         }
 
 
+        /**
+         * Gets a fresh working copy, when there is none yet or the existing one cannot be updated.
+         * By default, deletes the local directory and checks out with {@link CheckoutUpdater}.
+         */
+        protected List<External> freshCheckout() throws IOException, InterruptedException {
+            // later builds update this working copy, which has to record its externals itself
+            externalsParallelism = 1;
+            return delegateTo(new CheckoutUpdater(), workspaceFormat);
+        }
+
         /**
          * Hook for subtype to perform some cleanup activity before "svn update" takes place.
          *
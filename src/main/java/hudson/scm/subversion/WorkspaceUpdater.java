@@ -143,6 +143,18 @@ public abstract class WorkspaceUpdater extends AbstractDescribableImpl<Workspace
          */
         public RevisionParameterAction revisions;
 
+        /**
+         * If the module location is to be checked out as a sparse working copy, its shape. Can be null.
+         */
+        public SparseCheckout sparseCheckout;
+
+        /**
+         * Maximum number of svn:externals fetched concurrently once the module location itself has been checked out
+         * with externals ignored. The default of {@code 1} leaves them to Subversion, which fetches them one after the
+         * other. Only honored by {@link CheckoutUpdater}, for a working copy no later build updates.
+         */
+        public int externalsParallelism = 1;
+
         /**
          * Performs the checkout/update.
          *
@@ -164,6 +176,8 @@ public abstract class WorkspaceUpdater extends AbstractDescribableImpl<Workspace
             t.revisions = this.revisions;
             t.ws = this.ws;
             t.quietOperation = this.quietOperation;
+            t.sparseCheckout = this.sparseCheckout;
+            t.externalsParallelism = this.externalsParallelism;
 
             return t.perform();
         }
@@ -0,0 +1,222 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.scm.impl.subversion;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * The includes and excludes of a {@link SubversionSCMSource} compiled into two segment tries, so that walking down the
+ * repository only costs a hash lookup per literal segment and one pre-compiled pattern match per wildcard segment,
+ * whatever the number of patterns sharing a prefix.
+ * <p>
+ * Matching follows {@link SubversionSCMSource#isMatch(String, String)} for each segment: an include matches a path of
+ * the same length, an exclude matches any path it is a prefix of.
+ */
+final class BranchMatcher {
+
+    private final Node includes = new Node(null);
+    private final Node excludes = new Node(null);
+
+    private BranchMatcher() {
+    }
+
+    /**
+     * Compiles the patterns.
+     *
+     * @param includes the include patterns, as lists of segments.
+     * @param excludes the exclude patterns, as lists of segments.
+     * @return the matcher.
+     */
+    @NonNull
+    static BranchMatcher compile(@NonNull Collection<List<String>> includes,
+                                 @NonNull Collection<List<String>> excludes) {
+        BranchMatcher matcher = new BranchMatcher();
+        for (List<String> include : includes) {
+            matcher.includes.add(include);
+        }
+        for (List<String> exclude : excludes) {
+            matcher.excludes.add(exclude);
+        }
+        return matcher;
+    }
+
+    /**
+     * @return the state of the matcher at the root of the source.
+     */
+    @NonNull
+    State root() {
+        return new State(Collections.singletonList(includes), Collections.singletonList(excludes));
+    }
+
+    /**
+     * Where a path leads in the tries.
+     */
+    static final class State {
+        private final List<Node> includes;
+        private final List<Node> excludes;
+
+        private State(List<Node> includes, List<Node> excludes) {
+            this.includes = includes;
+            this.excludes = excludes;
+        }
+
+        /**
+         * Steps into a child directory.
+         *
+         * @param name the name of the child.
+         * @return the state of the child or {@code null} if it is excluded or no include can match it or its
+         * descendants.
+         */
+        @CheckForNull
+        State child(@NonNull String name) {
+            // most children of a large directory match nothing, do not allocate anything for them
+            List<Node> included = null;
+            for (Node node : includes) {
+                included = node.step(name, included);
+            }
+            if (included == null) {
+                return null;
+            }
+            List<Node> excluded = null;
+            for (Node node : excludes) {
+                excluded = node.step(name, excluded);
+            }
+            if (excluded == null) {
+                return new State(included, Collections.emptyList());
+            }
+            for (Node node : excluded) {
+                if (node.terminal) {
+                    return null;
+                }
+            }
+            return new State(included, excluded);
+        }
+
+        /**
+         * @return {@code true} if an include ends here, i.e. the directory is a branch.
+         */
+        boolean isBranch() {
+            for (Node node : includes) {
+                if (node.terminal) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return {@code true} if an include continues below, i.e. the children of the directory may be branches.
+         */
+        boolean hasChildren() {
+            for (Node node : includes) {
+                if (!node.literals.isEmpty() || !node.wildcards.isEmpty()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class Node {
+        /**
+         * The pattern of a wildcard segment, {@code null} for literal segments and for {@code *} which matches
+         * anything.
+         */
+        @CheckForNull
+        private final Pattern pattern;
+        private final Map<String, Node> literals = new HashMap<>();
+        private final Map<String, Node> wildcards = new HashMap<>();
+        private boolean terminal;
+
+        Node(@CheckForNull Pattern pattern) {
+            this.pattern = pattern;
+        }
+
+        void add(List<String> segments) {
+            Node node = this;
+            for (String segment : segments) {
+                if (segment.indexOf('*') == -1 && segment.indexOf('?') == -1) {
+                    node = node.literals.computeIfAbsent(segment, s -> new Node(null));
+                } else {
+                    node = node.wildcards.computeIfAbsent(segment, s -> new Node(toPattern(s)));
+                }
+            }
+            node.terminal = true;
+        }
+
+        /**
+         * Adds the nodes a child leads to.
+         *
+         * @param name the name of the child.
+         * @param into where to add the nodes, may be {@code null} if nothing was added yet.
+         * @return where the nodes were added, {@code null} if there were none.
+         */
+        @CheckForNull
+        List<Node> step(String name, @CheckForNull List<Node> into) {
+            Node literal = literals.get(name);
+            if (literal != null) {
+                into = into == null ? new ArrayList<>(2) : into;
+                into.add(literal);
+            }
+            for (Node wildcard : wildcards.values()) {
+                if (wildcard.pattern == null || wildcard.pattern.matcher(name).matches()) {
+                    into = into == null ? new ArrayList<>(2) : into;
+                    into.add(wildcard);
+                }
+            }
+            return into;
+        }
+
+        @CheckForNull
+        private static Pattern toPattern(String wildcard) {
+            if (wildcard.equals("*")) {
+                return null;
+            }
+            StringBuilder regex = new StringBuilder();
+            StringBuilder literal = new StringBuilder();
+            for (char c : wildcard.toCharArray()) {
+                if (c == '*' || c == '?') {
+                    if (literal.length() > 0) {
+                        regex.append(Pattern.quote(literal.toString()));
+                        literal.setLength(0);
+                    }
+                    regex.append(c == '*' ? ".*" : ".");
+                } else {
+                    literal.append(c);
+                }
+            }
+            if (literal.length() > 0) {
+                regex.append(Pattern.quote(literal.toString()));
+            }
+            return Pattern.compile(regex.toString(), Pattern.DOTALL);
+        }
+    }
+}
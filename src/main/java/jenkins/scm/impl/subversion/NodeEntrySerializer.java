@@ -0,0 +1,218 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.scm.impl.subversion;
+
+import org.mapdb.Serializer;
+import org.tmatesoft.svn.core.SVNNodeKind;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Stores {@link SVNRepositoryView.NodeEntry} records in a compact binary form instead of through Java serialization.
+ * <p>
+ * The children are written column by column: all the kinds as one byte each, then the revisions and the timestamps as
+ * variable length deltas from the previous child, then the names as a front coded string table where each name only
+ * stores what it does not share with the previous one. Directories such as {@code tags/}, whose children have similar
+ * names and were created in close revisions, shrink the most.
+ */
+final class NodeEntrySerializer implements Serializer<SVNRepositoryView.NodeEntry>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    static final NodeEntrySerializer INSTANCE = new NodeEntrySerializer();
+
+    private static final int VERSION = 1;
+
+    /**
+     * Upper bound on the child count or name length of an entry when MapDB does not tell how many bytes are left.
+     */
+    private static final int MAX_LENGTH = 1 << 24;
+
+    private static final byte KIND_NONE = 0;
+    private static final byte KIND_FILE = 1;
+    private static final byte KIND_DIR = 2;
+    private static final byte KIND_UNKNOWN = 3;
+
+    @Override
+    public void serialize(DataOutput out, SVNRepositoryView.NodeEntry value) throws IOException {
+        out.writeByte(VERSION);
+        writeLong(out, value.getRevision());
+        out.writeByte(toByte(value.getType()));
+        SVNRepositoryView.ChildEntry[] children = value.getChildren();
+        if (children == null) {
+            writeLong(out, 0);
+            return;
+        }
+        writeLong(out, children.length + 1);
+        for (SVNRepositoryView.ChildEntry child : children) {
+            out.writeByte(toByte(child.getType()));
+        }
+        long previous = 0;
+        for (SVNRepositoryView.ChildEntry child : children) {
+            writeLong(out, child.getRevision() - previous);
+            previous = child.getRevision();
+        }
+        previous = 0;
+        for (SVNRepositoryView.ChildEntry child : children) {
+            writeLong(out, child.getLastModified() - previous);
+            previous = child.getLastModified();
+        }
+        byte[] previousName = new byte[0];
+        for (SVNRepositoryView.ChildEntry child : children) {
+            byte[] name = child.getName().getBytes(StandardCharsets.UTF_8);
+            int shared = 0;
+            int max = Math.min(name.length, previousName.length);
+            while (shared < max && name[shared] == previousName[shared]) {
+                shared++;
+            }
+            // do not split a multi-byte character
+            while (shared > 0 && shared < name.length && (name[shared] & 0xC0) == 0x80) {
+                shared--;
+            }
+            writeLong(out, shared);
+            writeLong(out, name.length - shared);
+            out.write(name, shared, name.length - shared);
+            previousName = name;
+        }
+    }
+
+    @Override
+    public SVNRepositoryView.NodeEntry deserialize(DataInput in, int available) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new StreamCorruptedException("Unsupported node entry version " + version);
+        }
+        long revision = readLong(in);
+        SVNNodeKind type = toKind(in.readByte());
+        long encodedCount = readLong(in);
+        if (encodedCount == 0) {
+            return new SVNRepositoryView.NodeEntry(revision, type, null);
+        }
+        // every child takes at least one byte, so a count beyond what is left can only come from a damaged entry
+        if (encodedCount < 0 || encodedCount - 1 > (available >= 0 ? available : MAX_LENGTH)) {
+            throw new StreamCorruptedException("Implausible child count " + (encodedCount - 1));
+        }
+        int count = (int) (encodedCount - 1);
+        byte[] kinds = new byte[count];
+        in.readFully(kinds);
+        long[] revisions = new long[count];
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += readLong(in);
+            revisions[i] = previous;
+        }
+        long[] lastModified = new long[count];
+        previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += readLong(in);
+            lastModified[i] = previous;
+        }
+        SVNRepositoryView.ChildEntry[] children = new SVNRepositoryView.ChildEntry[count];
+        byte[] buffer = new byte[64];
+        int previousLength = 0;
+        for (int i = 0; i < count; i++) {
+            long shared = readLong(in);
+            long suffix = readLong(in);
+            if (shared < 0 || shared > previousLength || suffix < 0
+                    || suffix > (available >= 0 ? available : MAX_LENGTH)) {
+                throw new StreamCorruptedException("Malformed name of child " + i);
+            }
+            int length = (int) (shared + suffix);
+            if (length > buffer.length) {
+                byte[] grown = new byte[Math.max(length, buffer.length * 2)];
+                System.arraycopy(buffer, 0, grown, 0, (int) shared);
+                buffer = grown;
+            }
+            in.readFully(buffer, (int) shared, (int) suffix);
+            previousLength = length;
+            children[i] = new SVNRepositoryView.ChildEntry(revisions[i], lastModified[i], toKind(kinds[i]),
+                    new String(buffer, 0, length, StandardCharsets.UTF_8));
+        }
+        return new SVNRepositoryView.NodeEntry(revision, type, children);
+    }
+
+    @Override
+    public int fixedSize() {
+        return -1;
+    }
+
+    private Object readResolve() {
+        return INSTANCE;
+    }
+
+    private static byte toByte(SVNNodeKind kind) {
+        if (SVNNodeKind.NONE.equals(kind)) {
+            return KIND_NONE;
+        }
+        if (SVNNodeKind.FILE.equals(kind)) {
+            return KIND_FILE;
+        }
+        if (SVNNodeKind.DIR.equals(kind)) {
+            return KIND_DIR;
+        }
+        return KIND_UNKNOWN;
+    }
+
+    private static SVNNodeKind toKind(byte kind) throws IOException {
+        switch (kind) {
+            case KIND_NONE:
+                return SVNNodeKind.NONE;
+            case KIND_FILE:
+                return SVNNodeKind.FILE;
+            case KIND_DIR:
+                return SVNNodeKind.DIR;
+            case KIND_UNKNOWN:
+                return SVNNodeKind.UNKNOWN;
+            default:
+                throw new StreamCorruptedException("Unknown node kind " + kind);
+        }
+    }
+
+    /**
+     * Writes a zig-zag encoded variable length long, so that small negative deltas stay small too.
+     */
+    private static void writeLong(DataOutput out, long value) throws IOException {
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readLong(DataInput in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (v >>> 1) ^ -(v & 1);
+            }
+        }
+        throw new StreamCorruptedException("Malformed variable length long");
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.scm.impl.subversion;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Util;
+import net.jcip.annotations.GuardedBy;
+import org.tmatesoft.svn.core.SVNException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * File contents read through {@link SubversionSCMFileSystem}, kept on disk under {@code caches/svn-content} and keyed
+ * by repository UUID, path and the revision in which the file last changed, which fully determines its content, as
+ * well as by the credentials it was read with, so that it is only served to those allowed to read it.
+ * <p>
+ * The cache holds at most {@link #MAX_SIZE} bytes; files are evicted least recently used first, the last modification
+ * time of each entry recording when it was last used. Files larger than an eighth of the bound are not cached.
+ */
+final class SVNContentCache {
+    private static final Logger LOGGER = Logger.getLogger(SVNContentCache.class.getName());
+
+    /**
+     * Maximum size of the cache in bytes, {@code 0} to disable it.
+     */
+    static long MAX_SIZE = Long.getLong(SVNContentCache.class.getName() + ".maxSize", 100L * 1024 * 1024);
+
+    private static final Object LOCK = new Object();
+
+    /**
+     * The size of the entries, {@code -1} until the directory has been scanned.
+     */
+    @GuardedBy("LOCK")
+    private static long size = -1;
+
+    private SVNContentCache() {
+    }
+
+    /**
+     * Writes content to a stream.
+     */
+    interface Download {
+        void writeTo(@NonNull OutputStream out) throws IOException, SVNException;
+    }
+
+    static File getCacheDir() {
+        return new File(SVNRepositoryCache.getCacheDir(), "svn-content");
+    }
+
+    private static File entry(String uuid, @CheckForNull String credentialsId, String path, long revision) {
+        return new File(getCacheDir(), Util.getDigestOf(uuid + '\n' + Util.fixNull(credentialsId) + '\n' + path + '@'
+                + revision) + ".content");
+    }
+
+    /**
+     * Gets the content of a file if it is cached.
+     *
+     * @param uuid     the UUID of the repository.
+     * @param credentialsId the id of the credentials the content is read with, if any.
+     * @param path     the path of the file from the repository root.
+     * @param revision the revision the file last changed in.
+     * @return the content or {@code null} if it is not cached.
+     */
+    @CheckForNull
+    static InputStream get(@NonNull String uuid, @CheckForNull String credentialsId, @NonNull String path,
+                           long revision) {
+        if (MAX_SIZE <= 0) {
+            return null;
+        }
+        File entry = entry(uuid, credentialsId, path, revision);
+        try {
+            InputStream in = Files.newInputStream(entry.toPath());
+            // the modification time records the last use
+            entry.setLastModified(System.currentTimeMillis());
+            SVNRepositoryCacheMetrics.get().getContent().hit();
+            return in;
+        } catch (NoSuchFileException e) {
+            SVNRepositoryCacheMetrics.get().getContent().missed();
+            return null;
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "could not read " + entry, e);
+            return null;
+        }
+    }
+
+    /**
+     * Downloads the content of a file into the cache.
+     *
+     * @param uuid     the UUID of the repository.
+     * @param credentialsId the id of the credentials the content is read with, if any.
+     * @param path     the path of the file from the repository root.
+     * @param revision the revision the file last changed in.
+     * @param download writes the content.
+     * @return the content.
+     * @throws IOException  if the content could not be stored.
+     * @throws SVNException if the content could not be downloaded.
+     */
+    @NonNull
+    static InputStream put(@NonNull String uuid, @CheckForNull String credentialsId, @NonNull String path,
+                           long revision, @NonNull Download download)
+            throws IOException, SVNException {
+        Path temp = createTempFile();
+        boolean success = false;
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                download.writeTo(out);
+            }
+            long length = Files.size(temp);
+            if (!fits(length)) {
+                // too big to be worth evicting everything else for, serve it once
+                InputStream in = Files.newInputStream(temp, StandardOpenOption.DELETE_ON_CLOSE);
+                success = true;
+                return in;
+            }
+            Path entry = entry(uuid, credentialsId, path, revision).toPath();
+            Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            InputStream in = Files.newInputStream(entry);
+            success = true;
+            added(length);
+            return in;
+        } finally {
+            if (!success) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /**
+     * Creates a file to download content into, on the same file system as the cache so that it can be moved in.
+     */
+    @NonNull
+    static Path createTempFile() throws IOException {
+        Path dir = getCacheDir().toPath();
+        Files.createDirectories(dir);
+        return Files.createTempFile(dir, "download", ".tmp");
+    }
+
+    /**
+     * Moves content downloaded into a {@link #createTempFile()} file into the cache.
+     *
+     * @param uuid     the UUID of the repository.
+     * @param credentialsId the id of the credentials the content is read with, if any.
+     * @param path     the path of the file from the repository root.
+     * @param revision the revision the file last changed in.
+     * @param temp     the downloaded content.
+     * @return {@code true} if the content is now cached, {@code false} if it is too large and still needs deleting.
+     * @throws IOException if the content could not be moved.
+     */
+    static boolean store(@NonNull String uuid, @CheckForNull String credentialsId, @NonNull String path,
+                         long revision, @NonNull Path temp)
+            throws IOException {
+        long length = Files.size(temp);
+        if (!fits(length)) {
+            return false;
+        }
+        Files.move(temp, entry(uuid, credentialsId, path, revision).toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        added(length);
+        return true;
+    }
+
+    private static boolean fits(long length) {
+        return MAX_SIZE > 0 && length <= MAX_SIZE / 8;
+    }
+
+    private static void added(long length) {
+        synchronized (LOCK) {
+            if (size < 0) {
+                size = 0;
+                for (File entry : listEntries()) {
+                    size += entry.length();
+                }
+            } else {
+                size += length;
+            }
+            if (size <= MAX_SIZE) {
+                return;
+            }
+            File[] entries = listEntries();
+            Arrays.sort(entries, Comparator.comparingLong(File::lastModified));
+            for (File entry : entries) {
+                if (size <= MAX_SIZE) {
+                    break;
+                }
+                long entryLength = entry.length();
+                if (entry.delete()) {
+                    size -= entryLength;
+                    SVNRepositoryCacheMetrics.get().getContent().evicted();
+                }
+            }
+        }
+    }
+
+    private static File[] listEntries() {
+        File[] entries = getCacheDir().listFiles((dir, name) -> name.endsWith(".content"));
+        return entries == null ? new File[0] : entries;
+    }
+}
@@ -0,0 +1,701 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.scm.impl.subversion;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+import jenkins.model.Jenkins;
+import net.jcip.annotations.GuardedBy;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.mapdb.Serializer;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The {@code caches/svn-<uuid>.db} file of a repository, shared by all the {@link SVNRepositoryView}s of that
+ * repository. The file is opened by the first view that needs it and closed once the last of them is closed.
+ * <p>
+ * Writes are committed in batches: after {@link #COMMIT_BATCH_SIZE} modifications, once the oldest uncommitted
+ * modification is {@link #COMMIT_INTERVAL} milliseconds old, or when a view releases the file. Uncommitted
+ * modifications are visible to all the views of this JVM; a crash only loses them, the file itself stays consistent.
+ * <p>
+ * The entries of each file add up to at most {@link #MAX_SIZE} bytes, as they are serialized. Beyond that the least
+ * recently used ones are evicted until they are back under nine tenths of it. When each entry was last used is kept
+ * next to it in the file, to the minute, rather than on the heap, and the times of the entries read since the last
+ * commit are written with the next one. The files are compacted every {@link #COMPACT_INTERVAL} milliseconds.
+ * Activity is counted in {@link SVNRepositoryCacheMetrics}.
+ */
+final class SVNRepositoryCache {
+    private static final Logger LOGGER = Logger.getLogger(SVNRepositoryCache.class.getName());
+
+    /**
+     * Number of modifications after which they are committed.
+     */
+    static int COMMIT_BATCH_SIZE = Math.max(1,
+            Integer.getInteger(SVNRepositoryCache.class.getName() + ".commitBatchSize", 1000));
+
+    /**
+     * Maximum time in milliseconds a modification stays uncommitted while views keep using the file.
+     */
+    static long COMMIT_INTERVAL = Long.getLong(SVNRepositoryCache.class.getName() + ".commitInterval",
+            TimeUnit.SECONDS.toMillis(30));
+
+    /**
+     * Maximum number of bytes the entries of each file add up to, {@code 0} for no limit.
+     */
+    static long MAX_SIZE = Math.max(0,
+            Long.getLong(SVNRepositoryCache.class.getName() + ".maxSize", 256L * 1024 * 1024));
+
+    /**
+     * How often in milliseconds the files are compacted, {@code 0} to never compact them.
+     */
+    static long COMPACT_INTERVAL = Long.getLong(SVNRepositoryCache.class.getName() + ".compactInterval",
+            TimeUnit.DAYS.toMillis(1));
+
+    /**
+     * The current time in milliseconds, which tests move forward to tell entries used at different times apart.
+     */
+    static LongSupplier CLOCK = System::currentTimeMillis;
+
+    /**
+     * The low bits of the usage of an entry hold its size, the high ones the minute it was last used.
+     */
+    private static final int SIZE_BITS = 36;
+    private static final long SIZE_MASK = (1L << SIZE_BITS) - 1;
+
+    @GuardedBy("OPEN")
+    private static final Map<File, SVNRepositoryCache> OPEN = new HashMap<>();
+
+    private final File file;
+    private final DB db;
+    @GuardedBy("OPEN")
+    private int references;
+    @GuardedBy("this")
+    private int uncommitted;
+    @GuardedBy("this")
+    private long firstUncommitted;
+    @GuardedBy("this")
+    private final Map<String, Store<?>> stores = new HashMap<>();
+    /**
+     * The size of the entries of all the {@link #stores}.
+     */
+    @GuardedBy("this")
+    private long bytes;
+    /**
+     * The minute the entries read since the last commit were read at, not yet written to the file.
+     */
+    @GuardedBy("this")
+    private final Map<Entry, Long> touched = new HashMap<>();
+
+    private SVNRepositoryCache(File file, DB db) {
+        this.file = file;
+        this.db = db;
+    }
+
+    /**
+     * Opens the cache of a repository, or shares it if it is already open.
+     *
+     * @param uuid the UUID of the repository.
+     * @return the cache, to be {@link #release()}d once no longer needed.
+     * @throws IOException if the cache file cannot be created or loaded.
+     */
+    @NonNull
+    static SVNRepositoryCache acquire(@NonNull String uuid) throws IOException {
+        return acquire(new File(getCacheDir(), "svn-" + uuid + ".db"));
+    }
+
+    @NonNull
+    static SVNRepositoryCache acquire(@NonNull File cacheFile) throws IOException {
+        synchronized (OPEN) {
+            SVNRepositoryCache cache = OPEN.get(cacheFile);
+            if (cache == null || cache.db.isClosed()) {
+                cache = new SVNRepositoryCache(cacheFile, open(cacheFile));
+                OPEN.put(cacheFile, cache);
+            }
+            cache.references++;
+            return cache;
+        }
+    }
+
+    static File getCacheDir() {
+        return new File(Jenkins.get().getRootDir(), "caches");
+    }
+
+    /**
+     * Lists the cache files, opened or not.
+     *
+     * @return the cache files.
+     */
+    @NonNull
+    static File[] listFiles() {
+        File[] files = getCacheDir().listFiles((dir, name) -> name.startsWith("svn-") && name.endsWith(".db"));
+        return files == null ? new File[0] : files;
+    }
+
+    /**
+     * Gets the size of a cache file, including the files MapDB keeps next to it.
+     *
+     * @param cacheFile the cache file.
+     * @return the size in bytes.
+     */
+    static long sizeOf(File cacheFile) {
+        long size = 0;
+        for (File f : filesOf(cacheFile)) {
+            size += f.length();
+        }
+        return size;
+    }
+
+    private static File[] filesOf(File cacheFile) {
+        File[] files = cacheFile.getParentFile()
+                .listFiles((dir, name) -> name.startsWith(cacheFile.getName()));
+        return files == null ? new File[0] : files;
+    }
+
+    /**
+     * Moves a cache file that cannot be loaded, with the files MapDB keeps next to it, to the {@code corrupt}
+     * directory next to it, replacing the ones moved there before, so that it can be looked into.
+     */
+    private static void quarantine(File cacheFile) {
+        File corrupt = new File(cacheFile.getParentFile(), "corrupt");
+        corrupt.mkdirs();
+        for (File f : filesOf(cacheFile)) {
+            try {
+                Files.move(f.toPath(), new File(corrupt, f.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "failed to move " + f + " aside, deleting it", e);
+                f.delete();
+            }
+        }
+    }
+
+    private static DB open(File cacheFile) throws IOException {
+        cacheFile.getParentFile().mkdirs();
+        try {
+            return make(cacheFile);
+        } catch (Throwable t) { // this library seems to have nonstandard exception handling
+            // also move the index and transaction log aside, a corrupt one would fail the retry
+            quarantine(cacheFile);
+            SVNRepositoryCacheMetrics.get().corrupted();
+            LOGGER.log(Level.WARNING, "failed to load " + cacheFile + ", moved it to "
+                    + new File(cacheFile.getParentFile(), "corrupt") + " and starting afresh", t);
+        }
+        try {
+            return make(cacheFile);
+        } catch (Throwable t) {
+            // not a matter of the content of the file then
+            throw new IOException("failed to make " + cacheFile + ": " + t, t);
+        }
+    }
+
+    private static DB make(File cacheFile) {
+        return DBMaker.newFileDB(cacheFile)
+                .cacheWeakRefEnable()
+                .make();
+    }
+
+    /**
+     * Gets the nodes cached for the supplied credentials, keyed by {@code path@revision}.
+     *
+     * @param credentialsId the id of the credentials used to read the repository, if any.
+     * @return the entries.
+     */
+    @NonNull
+    Store<SVNRepositoryView.NodeEntry> getNodes(@CheckForNull String credentialsId) {
+        return getStore("nodes", credentialsId, NodeEntrySerializer.INSTANCE);
+    }
+
+    /**
+     * Gets what HEAD resolved to for the supplied credentials, keyed by path.
+     *
+     * @param credentialsId the id of the credentials used to read the repository, if any.
+     * @return the entries.
+     */
+    @NonNull
+    Store<SVNRepositoryView.HeadEntry> getHeads(@CheckForNull String credentialsId) {
+        return getStore("heads", credentialsId, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized <V> Store<V> getStore(String prefix, @CheckForNull String credentialsId,
+                                               @CheckForNull Serializer<V> serializer) {
+        String name = credentialsId == null ? prefix : prefix + "-" + credentialsId;
+        Store<V> store = (Store<V>) stores.get(name);
+        if (store == null) {
+            // entries keyed by path only, written by earlier versions
+            String legacy = credentialsId == null ? "data" : "data-" + credentialsId;
+            if (db.exists(legacy)) {
+                db.delete(legacy);
+            }
+            ConcurrentMap<String, V> map;
+            if (serializer == null || db.exists(name)) {
+                // an existing map keeps the serializer it was created with
+                map = db.getHashMap(name);
+            } else {
+                map = db.createHashMap(name).keySerializer(Serializer.STRING).valueSerializer(serializer).make();
+            }
+            String usageName = name + ".usage";
+            boolean measured = db.exists(usageName);
+            ConcurrentMap<String, Long> usage = measured
+                    ? db.getHashMap(usageName)
+                    : db.createHashMap(usageName).keySerializer(Serializer.STRING).valueSerializer(Serializer.LONG).make();
+            store = new Store<>(name, map, usage, serializer);
+            stores.put(name, store);
+            if (!measured) {
+                // written by a version that did not keep track of the use of entries, they all count as used now
+                long now = minutes();
+                for (String key : map.keySet()) {
+                    V value = store.read(key);
+                    if (value != null) {
+                        usage.put(key, pack(now, store.measure(key, value)));
+                    }
+                }
+            }
+            for (Long used : usage.values()) {
+                bytes += used & SIZE_MASK;
+            }
+            evict();
+            db.commit();
+            uncommitted = 0;
+        }
+        return store;
+    }
+
+    private static long minutes() {
+        return TimeUnit.MILLISECONDS.toMinutes(CLOCK.getAsLong());
+    }
+
+    private static long pack(long minute, long size) {
+        return minute << SIZE_BITS | Math.min(size, SIZE_MASK);
+    }
+
+    /**
+     * Evicts the least recently used entries once they are over {@link #MAX_SIZE}, down to nine tenths of it.
+     * <p>
+     * A first pass over the usage of the entries adds up their sizes by the hour they were last used in, which tells
+     * up to which hour to evict, and a second pass evicts them. Only the keys evicted are held on the heap.
+     */
+    @GuardedBy("this")
+    private void evict() {
+        if (MAX_SIZE <= 0 || bytes <= MAX_SIZE) {
+            return;
+        }
+        writeTouched();
+        long excess = bytes - MAX_SIZE / 10 * 9;
+        TreeMap<Long, Long> byHour = new TreeMap<>();
+        for (Store<?> store : stores.values()) {
+            for (Long used : store.usage.values()) {
+                byHour.merge((used >>> SIZE_BITS) / 60, used & SIZE_MASK, Long::sum);
+            }
+        }
+        long cutoff = Long.MAX_VALUE;
+        long total = 0;
+        for (Map.Entry<Long, Long> hour : byHour.entrySet()) {
+            total += hour.getValue();
+            if (total >= excess) {
+                cutoff = hour.getKey();
+                break;
+            }
+        }
+        long freed = 0;
+        for (Store<?> store : stores.values()) {
+            List<String> evicted = new ArrayList<>();
+            for (Map.Entry<String, Long> entry : store.usage.entrySet()) {
+                long hour = (entry.getValue() >>> SIZE_BITS) / 60;
+                if (hour < cutoff || hour == cutoff && freed < excess) {
+                    evicted.add(entry.getKey());
+                    freed += entry.getValue() & SIZE_MASK;
+                }
+            }
+            for (String key : evicted) {
+                store.remove(key);
+                SVNRepositoryCacheMetrics.get().evicted();
+            }
+        }
+    }
+
+    /**
+     * Writes when the entries read since the last commit were read.
+     */
+    @GuardedBy("this")
+    private void writeTouched() {
+        for (Map.Entry<Entry, Long> touch : touched.entrySet()) {
+            Store<?> store = touch.getKey().store;
+            String key = touch.getKey().key;
+            try {
+                Long used = store.usage.get(key);
+                if (used != null && used >>> SIZE_BITS != touch.getValue()) {
+                    store.usage.put(key, pack(touch.getValue(), used & SIZE_MASK));
+                    uncommitted++;
+                }
+            } catch (Throwable t) {
+                // ignore, it's only a cache
+            }
+        }
+        touched.clear();
+    }
+
+    /**
+     * Commits the pending modifications and reclaims the space left by removed and updated entries.
+     */
+    synchronized void compact() {
+        if (db.isClosed()) {
+            return;
+        }
+        commit();
+        try {
+            db.compact();
+            SVNRepositoryCacheMetrics.get().compacted();
+        } catch (Throwable t) {
+            LOGGER.log(Level.WARNING, "failed to compact " + file, t);
+        }
+    }
+
+    /**
+     * @return the number of entries in the file.
+     */
+    synchronized int size() {
+        int size = 0;
+        for (Store<?> store : stores.values()) {
+            size += store.usage.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return the size of the entries in the file, as they are serialized.
+     */
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    /**
+     * Compacts all the cache files.
+     */
+    static void compactAll() {
+        for (File cacheFile : listFiles()) {
+            String name = cacheFile.getName();
+            String uuid = name.substring("svn-".length(), name.length() - ".db".length());
+            SVNRepositoryCache cache;
+            try {
+                cache = acquire(uuid);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "failed to open " + cacheFile + " for compaction", e);
+                continue;
+            }
+            try {
+                cache.compact();
+            } finally {
+                cache.release();
+            }
+        }
+    }
+
+    /**
+     * Records a modification of the entries, committing the pending ones if the batch is full or old enough.
+     */
+    @GuardedBy("this")
+    private void modified() {
+        long now = CLOCK.getAsLong();
+        if (uncommitted++ == 0) {
+            firstUncommitted = now;
+        }
+        if (uncommitted >= COMMIT_BATCH_SIZE || now - firstUncommitted >= COMMIT_INTERVAL) {
+            commit();
+        }
+    }
+
+    /**
+     * Commits the pending modifications, if any, along with when the entries read since the last commit were read.
+     */
+    synchronized void commit() {
+        if (db.isClosed()) {
+            return;
+        }
+        writeTouched();
+        if (uncommitted == 0) {
+            return;
+        }
+        try {
+            db.commit();
+            SVNRepositoryCacheMetrics.get().committed();
+        } catch (Throwable t) {
+            // ignore, it's only a cache
+            LOGGER.log(Level.FINE, "failed to commit " + file, t);
+        }
+        uncommitted = 0;
+    }
+
+    /**
+     * Commits the modifications of all the open files that have been pending for longer than
+     * {@link #COMMIT_INTERVAL}.
+     */
+    static void commitExpired() {
+        List<SVNRepositoryCache> caches;
+        synchronized (OPEN) {
+            caches = new ArrayList<>(OPEN.values());
+        }
+        long oldest = CLOCK.getAsLong() - COMMIT_INTERVAL;
+        for (SVNRepositoryCache cache : caches) {
+            synchronized (cache) {
+                if (cache.uncommitted > 0 && cache.firstUncommitted <= oldest) {
+                    cache.commit();
+                }
+            }
+        }
+    }
+
+    boolean isClosed() {
+        return db.isClosed();
+    }
+
+    /**
+     * Gets the number of entries of an open file.
+     *
+     * @param cacheFile the file.
+     * @return the number of entries or {@code -1} if the file is not open.
+     */
+    static int entriesOf(File cacheFile) {
+        SVNRepositoryCache cache;
+        synchronized (OPEN) {
+            cache = OPEN.get(cacheFile);
+        }
+        return cache == null ? -1 : cache.size();
+    }
+
+    /**
+     * Gets the size of the entries of an open file.
+     *
+     * @param cacheFile the file.
+     * @return the size in bytes or {@code -1} if the file is not open.
+     */
+    static long bytesOf(File cacheFile) {
+        SVNRepositoryCache cache;
+        synchronized (OPEN) {
+            cache = OPEN.get(cacheFile);
+        }
+        return cache == null ? -1 : cache.bytes();
+    }
+
+    /**
+     * Gives up a reference obtained from {@link #acquire(String)}, closing the file when it was the last one.
+     */
+    void release() {
+        commit();
+        synchronized (OPEN) {
+            if (--references > 0) {
+                return;
+            }
+            if (OPEN.get(file) == this) {
+                OPEN.remove(file);
+            }
+            // still holding the lock so that nobody reopens the file before it is closed
+            db.close();
+        }
+    }
+
+    /**
+     * One of the maps of the file, along with the size of its entries and when they were last used.
+     *
+     * @param <V> the type of entries.
+     */
+    final class Store<V> {
+        private final String name;
+        private final ConcurrentMap<String, V> map;
+        /**
+         * The size of each entry and the minute it was last used, see {@link #pack(long, long)}.
+         */
+        private final ConcurrentMap<String, Long> usage;
+        @CheckForNull
+        private final Serializer<V> serializer;
+
+        private Store(String name, ConcurrentMap<String, V> map, ConcurrentMap<String, Long> usage,
+                      @CheckForNull Serializer<V> serializer) {
+            this.name = name;
+            this.map = map;
+            this.usage = usage;
+            this.serializer = serializer;
+        }
+
+        @CheckForNull
+        V get(@NonNull String key) {
+            V value = read(key);
+            if (value == null) {
+                SVNRepositoryCacheMetrics.get().missed();
+                return null;
+            }
+            synchronized (SVNRepositoryCache.this) {
+                touched.put(new Entry(this, key), minutes());
+                if (touched.size() >= COMMIT_BATCH_SIZE) {
+                    commit();
+                }
+            }
+            SVNRepositoryCacheMetrics.get().hit();
+            return value;
+        }
+
+        /**
+         * Reads an entry, discarding it if it cannot be read.
+         */
+        @CheckForNull
+        private V read(@NonNull String key) {
+            try {
+                return map.get(key);
+            } catch (Throwable t) {
+                LOGGER.log(Level.FINE, "discarding unreadable entry " + key + " of " + this, t);
+                SVNRepositoryCacheMetrics.get().corruptedEntry();
+                synchronized (SVNRepositoryCache.this) {
+                    remove(key);
+                    modified();
+                }
+                return null;
+            }
+        }
+
+        void put(@NonNull String key, @NonNull V value) {
+            long size = measure(key, value);
+            synchronized (SVNRepositoryCache.this) {
+                try {
+                    map.put(key, value);
+                    Long previous = usage.put(key, pack(minutes(), size));
+                    bytes += size - (previous == null ? 0 : previous & SIZE_MASK);
+                } catch (Throwable t) {
+                    // ignore, it's only a cache
+                    return;
+                }
+                touched.remove(new Entry(this, key));
+                evict();
+                modified();
+            }
+        }
+
+        @GuardedBy("SVNRepositoryCache.this")
+        private void remove(@NonNull String key) {
+            try {
+                map.remove(key);
+                Long used = usage.remove(key);
+                if (used != null) {
+                    bytes -= used & SIZE_MASK;
+                }
+            } catch (Throwable t) {
+                // ignore, it's only a cache
+            }
+            touched.remove(new Entry(this, key));
+            uncommitted++;
+        }
+
+        /**
+         * Gets the size of an entry: its key, its value as serialized, or an estimate of it for values stored with
+         * the default serializer, and some overhead.
+         */
+        long measure(@NonNull String key, @NonNull V value) {
+            long size = 2L * key.length() + 16;
+            if (serializer == null) {
+                return size + 64;
+            }
+            DataOutputStream out = new DataOutputStream(OutputStream.nullOutputStream());
+            try {
+                serializer.serialize(out, value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return size + out.size();
+        }
+
+        @Override
+        public String toString() {
+            return file.getName() + "#" + name;
+        }
+    }
+
+    private static final class Entry {
+        private final Store<?> store;
+        private final String key;
+
+        Entry(Store<?> store, String key) {
+            this.store = store;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry entry = (Entry) o;
+            return store == entry.store && key.equals(entry.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(store) + key.hashCode();
+        }
+    }
+
+    /**
+     * Compacts the cache files every {@link #COMPACT_INTERVAL} milliseconds.
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static class Compactor extends AsyncPeriodicWork {
+        public Compactor() {
+            super("Subversion cache compaction");
+        }
+
+        @Override
+        public long getRecurrencePeriod() {
+            return COMPACT_INTERVAL > 0 ? COMPACT_INTERVAL : DAY;
+        }
+
+        @Override
+        protected void execute(TaskListener listener) {
+            if (COMPACT_INTERVAL > 0) {
+                compactAll();
+            }
+        }
+    }
+}
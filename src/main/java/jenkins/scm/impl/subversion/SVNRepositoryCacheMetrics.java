@@ -0,0 +1,282 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.scm.impl.subversion;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Activity of the {@code caches/svn-<uuid>.db} files backing {@link SVNRepositoryView}. Counters are cumulative since
+ * startup and shown, with the size of each file, on a management page that also exports them through its {@code api}.
+ */
+@ExportedBean
+public final class SVNRepositoryCacheMetrics {
+
+    private static final SVNRepositoryCacheMetrics INSTANCE = new SVNRepositoryCacheMetrics();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+    private final AtomicLong corruptions = new AtomicLong();
+    private final AtomicLong corruptedEntries = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+    private final ContentCache content = new ContentCache();
+
+    SVNRepositoryCacheMetrics() {
+    }
+
+    @NonNull
+    public static SVNRepositoryCacheMetrics get() {
+        return INSTANCE;
+    }
+
+    void hit() {
+        hits.incrementAndGet();
+    }
+
+    void missed() {
+        misses.incrementAndGet();
+    }
+
+    void evicted() {
+        evictions.incrementAndGet();
+    }
+
+    void compacted() {
+        compactions.incrementAndGet();
+    }
+
+    void corrupted() {
+        corruptions.incrementAndGet();
+    }
+
+    void corruptedEntry() {
+        corruptedEntries.incrementAndGet();
+    }
+
+    void committed() {
+        commits.incrementAndGet();
+    }
+
+    @Exported
+    public long getHits() {
+        return hits.get();
+    }
+
+    @Exported
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Exported
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Exported
+    public long getCompactions() {
+        return compactions.get();
+    }
+
+    /**
+     * @return the number of times a cache file could not be loaded and was moved aside to start afresh.
+     */
+    @Exported
+    public long getCorruptions() {
+        return corruptions.get();
+    }
+
+    /**
+     * @return the number of entries that could not be read and were discarded.
+     */
+    @Exported
+    public long getCorruptedEntries() {
+        return corruptedEntries.get();
+    }
+
+    /**
+     * @return the number of batches of modifications committed.
+     */
+    @Exported
+    public long getCommits() {
+        return commits.get();
+    }
+
+    /**
+     * @return the number of bytes the entries of each file add up to at most, {@code 0} for no limit.
+     */
+    @Exported
+    public long getMaxSize() {
+        return SVNRepositoryCache.MAX_SIZE;
+    }
+
+    /**
+     * @return the activity of the file contents cache, counted apart from the directory listings above.
+     */
+    @Exported
+    public ContentCache getContent() {
+        return content;
+    }
+
+    @Exported
+    public List<CacheFile> getFiles() {
+        List<CacheFile> result = new ArrayList<>();
+        for (File file : SVNRepositoryCache.listFiles()) {
+            result.add(new CacheFile(file.getName(), SVNRepositoryCache.sizeOf(file),
+                    SVNRepositoryCache.entriesOf(file), SVNRepositoryCache.bytesOf(file)));
+        }
+        return result;
+    }
+
+    /**
+     * Activity of the {@code caches/svn-content} directory backing {@link SVNContentCache}.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static final class ContentCache {
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong evictions = new AtomicLong();
+
+        ContentCache() {
+        }
+
+        void hit() {
+            hits.incrementAndGet();
+        }
+
+        void missed() {
+            misses.incrementAndGet();
+        }
+
+        void evicted() {
+            evictions.incrementAndGet();
+        }
+
+        @Exported
+        public long getHits() {
+            return hits.get();
+        }
+
+        @Exported
+        public long getMisses() {
+            return misses.get();
+        }
+
+        @Exported
+        public long getEvictions() {
+            return evictions.get();
+        }
+
+        /**
+         * @return the number of bytes the cached contents add up to at most, {@code 0} if the cache is disabled.
+         */
+        @Exported
+        public long getMaxSize() {
+            return SVNContentCache.MAX_SIZE;
+        }
+    }
+
+    /**
+     * A cache file.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static final class CacheFile {
+        private final String name;
+        private final long size;
+        private final int entries;
+        private final long bytes;
+
+        CacheFile(String name, long size, int entries, long bytes) {
+            this.name = name;
+            this.size = size;
+            this.entries = entries;
+            this.bytes = bytes;
+        }
+
+        @Exported
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the size on disk in bytes.
+         */
+        @Exported
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * @return the number of entries, or {@code -1} if the file is not currently open.
+         */
+        @Exported
+        public int getEntries() {
+            return entries;
+        }
+
+        /**
+         * @return the size of the entries as they are serialized, or {@code -1} if the file is not currently open.
+         */
+        @Exported
+        public long getBytes() {
+            return bytes;
+        }
+    }
+
+    /**
+     * Shows the metrics on the {@code subversion-cache} page.
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static class ManagementLinkImpl extends MetricsManagementLink {
+
+        @Override
+        public String getDisplayName() {
+            return Messages.SVNRepositoryCacheMetrics_DisplayName();
+        }
+
+        @Override
+        public String getDescription() {
+            return Messages.SVNRepositoryCacheMetrics_Description();
+        }
+
+        @Override
+        public String getUrlName() {
+            return "subversion-cache";
+        }
+
+        @Override
+        public SVNRepositoryCacheMetrics getMetrics() {
+            return SVNRepositoryCacheMetrics.get();
+        }
+    }
+}
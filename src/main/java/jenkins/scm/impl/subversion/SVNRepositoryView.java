@@ -23,16 +23,27 @@
  */
 package jenkins.scm.impl.subversion;
 
+import com.cloudbees.jenkins.plugins.sshcredentials.SSHUserPrivateKey;
+import com.cloudbees.plugins.credentials.common.CertificateCredentials;
 import com.cloudbees.plugins.credentials.common.StandardCredentials;
+import com.cloudbees.plugins.credentials.common.UsernameCredentials;
+import com.cloudbees.plugins.credentials.common.UsernamePasswordCredentials;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.Util;
+import hudson.init.Terminator;
+import hudson.model.PeriodicWork;
 import hudson.scm.*;
-import jenkins.model.Jenkins;
-import org.mapdb.DB;
-import org.mapdb.DBMaker;
+import hudson.util.Secret;
+import net.jcip.annotations.GuardedBy;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 import org.tmatesoft.svn.core.ISVNDirEntryHandler;
+import org.tmatesoft.svn.core.ISVNLogEntryHandler;
 import org.tmatesoft.svn.core.SVNDirEntry;
 import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNLogEntry;
 import org.tmatesoft.svn.core.SVNNodeKind;
 import org.tmatesoft.svn.core.SVNURL;
 import org.tmatesoft.svn.core.auth.ISVNAuthenticationManager;
@@ -44,9 +55,21 @@ import org.tmatesoft.svn.core.wc.SVNWCUtil;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.ConcurrentMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -58,62 +81,68 @@ public class SVNRepositoryView {
     public static final int DIRENTS =
             SVNDirEntry.DIRENT_CREATED_REVISION | SVNDirEntry.DIRENT_KIND | SVNDirEntry.DIRENT_TIME;
     private static final Logger LOGGER = Logger.getLogger(SVNRepositoryView.class.getName());
-    private final DB cache;
+
+    /**
+     * How long, in milliseconds, a view returned by {@link #release()} is kept open for re-use.
+     * A value of {@code 0} closes views as soon as they are released.
+     */
+    static long IDLE_TIMEOUT = Long.getLong(SVNRepositoryView.class.getName() + ".idleTimeout",
+            TimeUnit.MINUTES.toMillis(5));
+
+    /**
+     * Views that have been released and may be re-used, most recently released first, keyed by {@link #key}.
+     */
+    @GuardedBy("IDLE")
+    private static final Map<String, Deque<SVNRepositoryView>> IDLE = new HashMap<>();
+
+    /**
+     * The cache file, {@code null} for a {@linkplain #SVNRepositoryView(SVNRepository) wrapped session}.
+     */
+    @CheckForNull
+    private final SVNRepositoryCache cache;
     private final SVNRepository repository;
-    private final ConcurrentMap<String, NodeEntry> data;
+    /**
+     * Immutable nodes keyed by {@code path@revision}.
+     */
+    @CheckForNull
+    private final SVNRepositoryCache.Store<NodeEntry> data;
+    /**
+     * What HEAD last resolved to, keyed by path.
+     */
+    @CheckForNull
+    private final SVNRepositoryCache.Store<HeadEntry> heads;
     private final String uuid;
+    private final SVNURL repoURL;
+    @CheckForNull
+    private final StandardCredentials credentials;
+    /**
+     * Tells the credentials this view was opened with from another version of them with the same id.
+     */
+    private final String credentialsFingerprint;
+    private volatile boolean closed;
+    /**
+     * Whether an {@link SVNException} may have left the session in a state unfit for re-use.
+     */
+    private volatile boolean failed;
+    /**
+     * When this view was last {@link #release()}d.
+     */
+    private volatile long releasedAt;
 
     public SVNRepositoryView(SVNURL repoURL, StandardCredentials credentials) throws SVNException, IOException {
-        repository = SVNRepositoryFactory.create(repoURL);
+        this.repoURL = repoURL;
+        this.credentials = credentials;
+        this.credentialsFingerprint = fingerprint(credentials);
+        repository = openRepository(repoURL, credentials);
         boolean success = false;
         try {
-            File configDir = SVNWCUtil.getDefaultConfigurationDirectory();
-
-            ISVNAuthenticationManager sam = new SVNAuthenticationManager(configDir, null, null);
-
-            sam.setAuthenticationProvider(new CredentialsSVNAuthenticationProviderImpl(credentials));
-            SVNAuthStoreHandlerImpl.install(sam);
-            sam = new FilterSVNAuthenticationManager(sam) {
-                // If there's no time out, the blocking read operation may hang forever, because TCP itself
-                // has no timeout. So always use some time out. If the underlying implementation gives us some
-                // value (which may come from ~/.subversion), honor that, as long as it sets some timeout value.
-                @Override
-                public int getReadTimeout(SVNRepository repository) {
-                    int r = super.getReadTimeout(repository);
-                    if (r <= 0) {
-                        r = (int) TimeUnit.MINUTES.toMillis(1);
-                    }
-                    return r;
-                }
-            };
-            repository.setTunnelProvider(SVNWCUtil.createDefaultOptions(true));
-            repository.setAuthenticationManager(sam);
-
             uuid = repository.getRepositoryUUID(true);
             if (uuid == null) { // TODO is this even possible? Javadoc is unclear.
                 throw new IOException("Could not find UUID for " + repoURL);
             }
-            File cacheFile = new File(new File(Jenkins.getInstance().getRootDir(), "caches"), "svn-" + uuid + ".db");
-
-            cacheFile.getParentFile().mkdirs();
-            DB cache = null;
-            int count = 0;
-            while (cache == null) {
-                try {
-                    cache = DBMaker.newFileDB(cacheFile)
-                            .cacheWeakRefEnable()
-                            .make();
-                } catch (Throwable t) { // this library seems to have nonstandard exception handling
-                    cacheFile.delete();
-                    LOGGER.log(Level.WARNING, "failing to make/load " + cacheFile, t);
-                    if (++count >= 10) {
-                        throw new IOException("failed to make/load " + cacheFile + ": " + t, t);
-                    }
-                }
-            }
-            this.cache = cache;
-            this.data = this.cache.getHashMap(credentials == null ? "data" : "data-" + credentials.getId());
-            cache.commit();
+            this.cache = SVNRepositoryCache.acquire(uuid);
+            this.data = this.cache.getNodes(getCredentialsId());
+            this.heads = this.cache.getHeads(getCredentialsId());
             success = true;
         } finally {
             if (!success) {
@@ -122,6 +151,187 @@ public class SVNRepositoryView {
         }
     }
 
+    /**
+     * Wraps a session opened by the caller, which stays in charge of closing it. The credentials the session
+     * authenticates with are not known, so nothing read through such a view is cached.
+     *
+     * @param repository the session.
+     * @throws SVNException if the repository could not be accessed.
+     */
+    SVNRepositoryView(@NonNull SVNRepository repository) throws SVNException {
+        this.repository = repository;
+        this.repoURL = repository.getLocation();
+        this.credentials = null;
+        this.credentialsFingerprint = "";
+        this.uuid = repository.getRepositoryUUID(true);
+        this.cache = null;
+        this.data = null;
+        this.heads = null;
+    }
+
+    /**
+     * Gets a view of the repository, re-using a released one for the same location and credentials if possible so
+     * that neither the network session nor the cache file need to be reopened.
+     *
+     * @param repoURL     the location.
+     * @param credentials the credentials.
+     * @return a view for the exclusive use of the caller until it calls {@link #release()}.
+     * @throws SVNException if the repository could not be accessed.
+     * @throws IOException  if the cache could not be opened.
+     */
+    @NonNull
+    public static SVNRepositoryView open(@NonNull SVNURL repoURL, @CheckForNull StandardCredentials credentials)
+            throws SVNException, IOException {
+        String key = key(repoURL, credentials);
+        String fingerprint = fingerprint(credentials);
+        List<SVNRepositoryView> stale = new ArrayList<>();
+        SVNRepositoryView view = null;
+        synchronized (IDLE) {
+            Deque<SVNRepositoryView> idle = IDLE.get(key);
+            while (view == null && idle != null && !idle.isEmpty()) {
+                SVNRepositoryView candidate = idle.pollFirst();
+                // an updated credential has the same id, do not keep using the old secret
+                if (candidate.credentialsFingerprint.equals(fingerprint) && !candidate.isClosed()) {
+                    view = candidate;
+                } else {
+                    stale.add(candidate);
+                }
+            }
+            if (idle != null && idle.isEmpty()) {
+                IDLE.remove(key);
+            }
+        }
+        for (SVNRepositoryView candidate : stale) {
+            candidate.close();
+        }
+        return view != null ? view : new SVNRepositoryView(repoURL, credentials);
+    }
+
+    private static String key(SVNURL repoURL, @CheckForNull StandardCredentials credentials) {
+        return repoURL.toString() + '\n' + (credentials == null ? "" : credentials.getId());
+    }
+
+    /**
+     * Digests what a session authenticates with, so that a view is re-used by a lookup returning another instance of
+     * the same credentials but not after they were updated. Credentials of a kind whose secrets are not known here
+     * are only matched by identity.
+     */
+    static String fingerprint(@CheckForNull StandardCredentials credentials) {
+        if (credentials == null) {
+            return "";
+        }
+        List<String> parts = new ArrayList<>();
+        parts.add(credentials.getClass().getName());
+        parts.add(credentials.getId());
+        if (credentials instanceof CertificateCredentials) {
+            parts.add(Integer.toHexString(System.identityHashCode(credentials)));
+        } else if (credentials instanceof SSHUserPrivateKey) {
+            SSHUserPrivateKey key = (SSHUserPrivateKey) credentials;
+            parts.add(key.getUsername());
+            parts.add(Secret.toString(key.getPassphrase()));
+            parts.addAll(key.getPrivateKeys());
+        } else if (credentials instanceof UsernamePasswordCredentials) {
+            parts.add(((UsernamePasswordCredentials) credentials).getUsername());
+            parts.add(Secret.toString(((UsernamePasswordCredentials) credentials).getPassword()));
+        } else if (credentials instanceof UsernameCredentials) {
+            parts.add(((UsernameCredentials) credentials).getUsername());
+        } else {
+            parts.add(Integer.toHexString(System.identityHashCode(credentials)));
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return Util.toHexString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-256 is always available", e);
+        }
+    }
+
+    /**
+     * Gives back a view obtained from {@link #open(SVNURL, StandardCredentials)}, keeping it open for re-use by the
+     * next caller for up to {@link #IDLE_TIMEOUT}, unless it was {@linkplain #invalidate() invalidated}.
+     */
+    public void release() {
+        if (IDLE_TIMEOUT <= 0 || failed || isClosed() || cache == null) {
+            close();
+            return;
+        }
+        cache.commit();
+        releasedAt = System.currentTimeMillis();
+        synchronized (IDLE) {
+            IDLE.computeIfAbsent(key(repoURL, credentials), k -> new ArrayDeque<>()).addFirst(this);
+        }
+    }
+
+    /**
+     * Closes the released views that have not been re-used for longer than {@link #IDLE_TIMEOUT}.
+     *
+     * @param all {@code true} to close all the released views regardless of how long they have been idle.
+     */
+    static void closeIdle(boolean all) {
+        long oldest = System.currentTimeMillis() - IDLE_TIMEOUT;
+        List<SVNRepositoryView> expired = new ArrayList<>();
+        synchronized (IDLE) {
+            for (Iterator<Deque<SVNRepositoryView>> i = IDLE.values().iterator(); i.hasNext(); ) {
+                Deque<SVNRepositoryView> idle = i.next();
+                for (Iterator<SVNRepositoryView> j = idle.iterator(); j.hasNext(); ) {
+                    SVNRepositoryView view = j.next();
+                    if (all || view.releasedAt < oldest) {
+                        j.remove();
+                        expired.add(view);
+                    }
+                }
+                if (idle.isEmpty()) {
+                    i.remove();
+                }
+            }
+        }
+        for (SVNRepositoryView view : expired) {
+            view.close();
+        }
+    }
+
+    private static SVNRepository openRepository(SVNURL repoURL, StandardCredentials credentials) throws SVNException {
+        SVNRepository repository = SVNRepositoryFactory.create(repoURL);
+        File configDir = SVNWCUtil.getDefaultConfigurationDirectory();
+
+        ISVNAuthenticationManager sam = new SVNAuthenticationManager(configDir, null, null);
+
+        sam.setAuthenticationProvider(new CredentialsSVNAuthenticationProviderImpl(credentials));
+        SVNAuthStoreHandlerImpl.install(sam);
+        sam = new FilterSVNAuthenticationManager(sam) {
+            // If there's no time out, the blocking read operation may hang forever, because TCP itself
+            // has no timeout. So always use some time out. If the underlying implementation gives us some
+            // value (which may come from ~/.subversion), honor that, as long as it sets some timeout value.
+            @Override
+            public int getReadTimeout(SVNRepository repository) {
+                int r = super.getReadTimeout(repository);
+                if (r <= 0) {
+                    r = (int) TimeUnit.MINUTES.toMillis(1);
+                }
+                return r;
+            }
+        };
+        repository.setTunnelProvider(SVNWCUtil.createDefaultOptions(true));
+        repository.setAuthenticationManager(sam);
+        return repository;
+    }
+
+    /**
+     * Gets another view of the same location, with the same credentials, sharing the cache of this view.
+     * Sessions are not thread safe, so each thread working against the repository concurrently needs its own fork.
+     *
+     * @return the forked view, to be {@link #release()}d once no longer needed.
+     * @throws SVNException if the session could not be created.
+     * @throws IOException  if the cache could not be opened.
+     */
+    public SVNRepositoryView fork() throws SVNException, IOException {
+        return open(repoURL, credentials);
+    }
+
     public SVNRepository getRepository() {
         return repository;
     }
@@ -131,103 +341,313 @@ public class SVNRepositoryView {
         return uuid;
     }
 
+    /**
+     * @return the id of the credentials this view reads the repository with, if any.
+     */
+    @CheckForNull
+    public String getCredentialsId() {
+        return credentials == null ? null : credentials.getId();
+    }
+
+    /**
+     * Marks the session as unfit for re-use, so that {@link #release()} closes it. The methods of this view do so when
+     * the repository fails, callers of {@link #getRepository()} do so when it throws an {@link SVNException}.
+     */
+    public void invalidate() {
+        failed = true;
+    }
+
     public boolean isClosed() {
-        return cache.isClosed();
+        return closed || cache != null && cache.isClosed();
+    }
+
+    /**
+     * @return {@code false} if nothing read through this view is cached, see {@link #SVNRepositoryView(SVNRepository)}.
+     */
+    boolean isCaching() {
+        return cache != null;
     }
 
     public void close() {
-        if (isClosed()) {
+        if (closed) {
             return;
         }
-        repository.closeSession();
-        cache.close();
+        closed = true;
+        if (cache != null) {
+            repository.closeSession();
+            cache.release();
+        }
+    }
+
+    /**
+     * Closes the idle views once they have been unused for long enough and commits cache writes left pending by the
+     * views still in use.
+     */
+    @Extension
+    @Restricted(NoExternalUse.class)
+    public static class IdleViewsCloser extends PeriodicWork {
+        @Override
+        public long getRecurrencePeriod() {
+            return MIN;
+        }
+
+        @Override
+        protected void doRun() {
+            closeIdle(false);
+            SVNRepositoryCache.commitExpired();
+        }
+    }
+
+    @Terminator
+    @Restricted(NoExternalUse.class)
+    public static void closeAllIdle() {
+        closeIdle(true);
     }
 
     public SVNNodeKind checkPath(String path, long revision) throws SVNException {
+        return getNode(path, revision).getType();
+    }
+
+    /**
+     * Gets a node, with its children if it is a directory.
+     * <p>
+     * The content of {@code path@revision} never changes, so nodes at a given revision are cached forever and looked
+     * up without going to the repository. Looking up {@code -1} (HEAD) only checks the youngest revision of the
+     * repository and, if it moved since the previous lookup of the path, the revision in which the path last changed.
+     * A directory is then listed as {@link #getDirectory(String, long, long)} does, by that revision but at the
+     * youngest one, as a path below a copy did not exist at that path in the revision it last changed in.
+     *
+     * @param path     the path.
+     * @param revision the revision or {@code -1} for HEAD.
+     * @return the node. For HEAD, its revision is the youngest revision of the repository, or {@code -1} if the node
+     * does not exist.
+     * @throws SVNException if the node could not be retrieved and is not cached.
+     */
+    public NodeEntry getNode(String path, long revision) throws SVNException {
+        path = SVNPathUtil.getAbsolutePath(path);
+        if (revision >= 0) {
+            return getNodeAt(path, revision);
+        }
+        HeadEntry head = getHeadEntry(path);
+        try {
+            long latest = repository.getLatestRevision();
+            if (head == null || head.getRevision() != latest) {
+                SVNDirEntry info = repository.info(path, latest);
+                head = info == null
+                        ? new HeadEntry(latest, latest, SVNNodeKind.NONE)
+                        : new HeadEntry(latest, info.getRevision(), info.getKind());
+                setHeadEntry(path, head);
+            }
+        } catch (SVNException e) {
+            invalidate();
+            // if we have a cached result and the server is off-line, use the cache
+            if (head == null) {
+                throw e;
+            }
+        }
+        if (SVNNodeKind.NONE.equals(head.getType())) {
+            return new NodeEntry(-1, SVNNodeKind.NONE, null);
+        }
+        if (!SVNNodeKind.DIR.equals(head.getType())) {
+            return new NodeEntry(head.getRevision(), head.getType(), null);
+        }
+        NodeEntry nodeEntry = getDirectory(path, head.getRevision(), head.getChangedRevision());
+        return new NodeEntry(head.getRevision(), nodeEntry.getType(), nodeEntry.getChildren());
+    }
+
+    /**
+     * Gets a node expected to be a directory, listing it straight away rather than checking what it is first.
+     *
+     * @param path     the path.
+     * @param revision the revision or {@code -1} for HEAD.
+     * @return the node, with its children if it is a directory.
+     * @throws SVNException if the node could not be retrieved and is not cached.
+     */
+    public NodeEntry getDirectory(String path, long revision) throws SVNException {
+        path = SVNPathUtil.getAbsolutePath(path);
+        if (revision < 0) {
+            return getNode(path, revision);
+        }
+        String key = path + '@' + revision;
+        NodeEntry nodeEntry = verify(key, path, revision, getNodeEntry(key));
+        if (nodeEntry == null) {
+            ChildEntryCollector collector = new ChildEntryCollector();
+            try {
+                repository.getDir(path, revision, null, DIRENTS, collector);
+            } catch (SVNException e) {
+                // not a directory after all, or not there at that revision
+                return getNodeAt(path, revision);
+            }
+            nodeEntry = new NodeEntry(revision, SVNNodeKind.DIR, collector.getResult());
+            setNodeEntry(key, nodeEntry);
+        }
+        return nodeEntry;
+    }
+
+    /**
+     * Lists a directory, caching the listing by the revision the directory last changed in rather than by the
+     * revision asked for, so that it is shared by all the revisions up to its next change. It is still listed at the
+     * revision asked for, as a directory below a copy may not exist at its path in the revision it last changed in.
+     * The listing records the revision it was made at, for {@link #verify} to tell such a listing apart.
+     *
+     * @param path            the path.
+     * @param revision        the revision.
+     * @param changedRevision the revision the directory last changed in, as of {@code revision}.
+     * @return the node, with its children.
+     * @throws SVNException if the directory could not be listed and is not cached.
+     */
+    NodeEntry getDirectory(String path, long revision, long changedRevision) throws SVNException {
         path = SVNPathUtil.getAbsolutePath(path);
-        NodeEntry nodeEntry = getNodeEntry(path);
-        if (nodeEntry == null || nodeEntry.getRevision() != revision) {
+        String key = path + '@' + changedRevision;
+        NodeEntry nodeEntry = getNodeEntry(key);
+        // older versions cached the absence of a copied directory at the revision it last changed in
+        if (nodeEntry == null || !SVNNodeKind.DIR.equals(nodeEntry.getType())) {
+            ChildEntryCollector collector = new ChildEntryCollector();
+            try {
+                repository.getDir(path, revision, null, DIRENTS, collector);
+            } catch (SVNException e) {
+                invalidate();
+                throw e;
+            }
+            nodeEntry = new NodeEntry(revision, SVNNodeKind.DIR, collector.getResult());
+            setNodeEntry(key, nodeEntry);
+        }
+        return nodeEntry;
+    }
+
+    /**
+     * Gets a node at a revision. That a path does not exist is not cached, as directories are also cached by the
+     * revision they last changed in, where a directory below a copy does not exist at its path.
+     */
+    private NodeEntry getNodeAt(String path, long revision) throws SVNException {
+        String key = path + '@' + revision;
+        NodeEntry nodeEntry = verify(key, path, revision, getNodeEntry(key));
+        if (nodeEntry == null || SVNNodeKind.NONE.equals(nodeEntry.getType())) {
             try {
                 SVNNodeKind svnNodeKind = repository.checkPath(path, revision);
                 if (SVNNodeKind.DIR.equals(svnNodeKind)) {
                     ChildEntryCollector collector = new ChildEntryCollector();
-                    long dirRev = repository.getDir(path, revision, null, DIRENTS, collector);
-                    nodeEntry = new NodeEntry(dirRev, svnNodeKind, collector.getResult());
+                    repository.getDir(path, revision, null, DIRENTS, collector);
+                    nodeEntry = new NodeEntry(revision, svnNodeKind, collector.getResult());
                 } else {
                     nodeEntry = new NodeEntry(revision, svnNodeKind, null);
                 }
-                setNodeEntry(path, nodeEntry);
             } catch (SVNException e) {
-                // if we have a cached result and the server is off-line, use the cache
-                if (nodeEntry == null) {
-                    throw e;
-                }
+                invalidate();
+                throw e;
+            }
+            if (!SVNNodeKind.NONE.equals(nodeEntry.getType())) {
+                setNodeEntry(key, nodeEntry);
             }
         }
-        return nodeEntry.getType();
+        return nodeEntry;
     }
 
+    /**
+     * Checks a cached node against a lookup of its path at the revision it is cached by. A directory listed by
+     * {@link #getDirectory(String, long, long)} at a later revision than the one it last changed in was not
+     * necessarily at that path in that revision, if it is below a copy made since, so it is only known to be there
+     * once checked, which is then cached.
+     *
+     * @return the node, or {@code null} if the path is not there at that revision or the node is not cached.
+     */
     @CheckForNull
-    private NodeEntry getNodeEntry(String path) {
+    private NodeEntry verify(String key, String path, long revision, @CheckForNull NodeEntry nodeEntry)
+            throws SVNException {
+        if (nodeEntry == null || nodeEntry.getRevision() == revision) {
+            return nodeEntry;
+        }
         try {
-            return data.get(path);
-        } catch (Throwable t) {
-            // ignore, it's only a cache
-            return null;
+            if (!SVNNodeKind.DIR.equals(repository.checkPath(path, revision))) {
+                return null;
+            }
+        } catch (SVNException e) {
+            invalidate();
+            throw e;
+        }
+        nodeEntry = new NodeEntry(revision, SVNNodeKind.DIR, nodeEntry.getChildren());
+        setNodeEntry(key, nodeEntry);
+        return nodeEntry;
+    }
+
+    @CheckForNull
+    private NodeEntry getNodeEntry(String key) {
+        return data == null ? null : data.get(key);
+    }
+
+    private void setNodeEntry(String key, NodeEntry nodeEntry) {
+        if (data != null) {
+            data.put(key, nodeEntry);
         }
     }
 
-    private void setNodeEntry(String path, NodeEntry nodeEntry) {
-        try {
-            data.put(path, nodeEntry);
-            cache.commit();
-        } catch (Throwable t) {
-            // ignore, it's only a cache
+    @CheckForNull
+    private HeadEntry getHeadEntry(String path) {
+        return heads == null ? null : heads.get(path);
+    }
+
+    /**
+     * @return {@code true} if the node at a revision is cached and needs no round trip to the repository.
+     */
+    boolean isCached(String path, long revision) {
+        return getNodeEntry(SVNPathUtil.getAbsolutePath(path) + '@' + revision) != null;
+    }
+
+    /**
+     * Caches the listing of a directory obtained other than through {@link #getNode(String, long)}, such as by an
+     * export of the tree it belongs to.
+     *
+     * @param path            the path of the directory.
+     * @param revision        the revision the directory was listed at.
+     * @param changedRevision the revision the directory last changed in, as of {@code revision}, which the listing is
+     *                        cached by like {@link #getDirectory(String, long, long)} does.
+     * @param children        the entries of the directory, in any order.
+     */
+    void putDirectory(String path, long revision, long changedRevision, Collection<ChildEntry> children) {
+        ChildEntry[] result = children.toArray(new ChildEntry[0]);
+        Arrays.sort(result, ChildEntryCollector.ORDER);
+        setNodeEntry(SVNPathUtil.getAbsolutePath(path) + '@' + changedRevision,
+                new NodeEntry(revision, SVNNodeKind.DIR, result));
+    }
+
+    private void setHeadEntry(String path, HeadEntry headEntry) {
+        if (heads != null) {
+            heads.put(path, headEntry);
         }
     }
 
     public long getLatestRevision() throws SVNException {
-        return repository.getLatestRevision();
+        try {
+            return repository.getLatestRevision();
+        } catch (SVNException e) {
+            invalidate();
+            throw e;
+        }
     }
 
-    public NodeEntry getNode(String path, long revision) throws SVNException {
-        path = SVNPathUtil.getAbsolutePath(path);
-        NodeEntry nodeEntry = getNodeEntry(path);
-        if (nodeEntry == null || nodeEntry.getRevision() != revision) {
-            try {
-                SVNNodeKind svnNodeKind = repository.checkPath(path, revision);
-                if (revision == -1) {
-                    if (SVNNodeKind.DIR.equals(svnNodeKind)) {
-                        ChildEntryCollector collector = new ChildEntryCollector();
-                        long dirRev = repository.getDir(path, revision, null, DIRENTS, collector);
-                        nodeEntry = new NodeEntry(dirRev, svnNodeKind, collector.getResult());
-                    } else if (SVNNodeKind.FILE.equals(svnNodeKind)) {
-                        long fileRev = repository.getFile(path, revision, null, null);
-                        nodeEntry = new NodeEntry(fileRev, svnNodeKind, null);
-                    } else {
-                        nodeEntry = new NodeEntry(revision, svnNodeKind, null);
-                    }
-                } else {
-                    nodeEntry = new NodeEntry(revision, svnNodeKind, null);
-                }
-                if (!nodeEntry.getType().equals(SVNNodeKind.DIR)) {
-                    setNodeEntry(path, nodeEntry);
-                }
-            } catch (SVNException e) {
-                // if we have a cached result and the server is off-line, use the cache
-                if (nodeEntry == null) {
-                    throw e;
+    /**
+     * Collects the paths changed at or below the location of this view between two revisions.
+     *
+     * @param startRevision the first revision, inclusive.
+     * @param endRevision   the last revision, inclusive.
+     * @return the changed paths, absolute from the repository root.
+     * @throws SVNException if the log could not be retrieved.
+     */
+    @NonNull
+    public Set<String> getChangedPaths(long startRevision, long endRevision) throws SVNException {
+        final Set<String> result = new HashSet<>();
+        try {
+            repository.log(new String[]{""}, startRevision, endRevision, true, false, new ISVNLogEntryHandler() {
+                @Override
+                public void handleLogEntry(SVNLogEntry logEntry) throws SVNException {
+                    result.addAll(logEntry.getChangedPaths().keySet());
                 }
-            }
+            });
+        } catch (SVNException e) {
+            invalidate();
+            throw e;
         }
-        if (nodeEntry.getType().equals(SVNNodeKind.DIR) && nodeEntry.getChildren() == null) {
-            // if the cached result does not have a list of children and the server is off-line, bomb out
-            ChildEntryCollector collector = new ChildEntryCollector();
-            long dirRev = repository.getDir(path, revision, null, DIRENTS, collector);
-            nodeEntry = new NodeEntry(dirRev, nodeEntry.getType(), collector.getResult());
-            setNodeEntry(path, nodeEntry);
-        }
-        return nodeEntry;
+        return result;
     }
 
     public static class NodeEntry implements Serializable {
@@ -249,11 +669,47 @@ public class SVNRepositoryView {
             return revision;
         }
 
+        /**
+         * @return the children of a directory, most recently changed first.
+         */
         public ChildEntry[] getChildren() {
             return children;
         }
     }
 
+    /**
+     * What HEAD of a path resolved to.
+     */
+    static class HeadEntry implements Serializable {
+        private final long revision;
+        private final long changedRevision;
+        private final SVNNodeKind type;
+
+        HeadEntry(long revision, long changedRevision, SVNNodeKind type) {
+            this.revision = revision;
+            this.changedRevision = changedRevision;
+            this.type = type;
+        }
+
+        /**
+         * @return the youngest revision of the repository when HEAD was resolved.
+         */
+        long getRevision() {
+            return revision;
+        }
+
+        /**
+         * @return the revision in which the path last changed as of {@link #getRevision()}.
+         */
+        long getChangedRevision() {
+            return changedRevision;
+        }
+
+        SVNNodeKind getType() {
+            return type;
+        }
+    }
+
     public static class ChildEntry implements Serializable {
         private final long revision;
         private final SVNNodeKind type;
@@ -284,7 +740,13 @@ public class SVNRepositoryView {
         }
     }
 
+    /**
+     * Collects the entries of a directory, most recently changed first so that consumers never need to sort them.
+     */
     private static class ChildEntryCollector implements ISVNDirEntryHandler {
+        private static final Comparator<ChildEntry> ORDER =
+                Comparator.comparingLong(ChildEntry::getRevision).reversed();
+
         private final List<ChildEntry> children = new ArrayList<>();
 
         public void handleDirEntry(SVNDirEntry entry) throws SVNException {
@@ -293,7 +755,10 @@ public class SVNRepositoryView {
         }
 
         public ChildEntry[] getResult() {
-            return children.toArray(new ChildEntry[0]);
+            ChildEntry[] result = children.toArray(new ChildEntry[0]);
+            children.clear();
+            Arrays.sort(result, ORDER);
+            return result;
         }
     }
 }
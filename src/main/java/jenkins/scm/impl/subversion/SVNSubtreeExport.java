@@ -0,0 +1,287 @@
+/*
+ * The MIT License
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.scm.impl.subversion;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.tmatesoft.svn.core.SVNCommitInfo;
+import org.tmatesoft.svn.core.SVNDepth;
+import org.tmatesoft.svn.core.SVNErrorCode;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNNodeKind;
+import org.tmatesoft.svn.core.SVNProperty;
+import org.tmatesoft.svn.core.SVNPropertyValue;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.internal.util.SVNDate;
+import org.tmatesoft.svn.core.internal.util.SVNPathUtil;
+import org.tmatesoft.svn.core.internal.wc.SVNFileUtil;
+import org.tmatesoft.svn.core.io.ISVNEditor;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.io.diff.SVNDeltaProcessor;
+import org.tmatesoft.svn.core.io.diff.SVNDiffWindow;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Downloads a whole subtree at a revision in a single update report exchange, the way {@code svn export} does,
+ * filling the listings of the {@link SVNRepositoryView} node cache and the file contents of the
+ * {@link SVNContentCache} so that walking the subtree afterwards needs no round trip to the repository.
+ */
+final class SVNSubtreeExport implements ISVNEditor {
+    private static final Logger LOGGER = Logger.getLogger(SVNSubtreeExport.class.getName());
+
+    private final SVNRepositoryView view;
+    /**
+     * The path of the subtree from the repository root.
+     */
+    private final String root;
+    private final long revision;
+    /**
+     * The revision the subtree last changed in.
+     */
+    private final long changedRevision;
+    private final Deque<Node> directories = new ArrayDeque<>();
+    private final SVNDeltaProcessor deltaProcessor = new SVNDeltaProcessor();
+    @CheckForNull
+    private Node file;
+    @CheckForNull
+    private Path temp;
+    private int files;
+
+    private SVNSubtreeExport(SVNRepositoryView view, String root, long revision, long changedRevision) {
+        this.view = view;
+        this.root = root;
+        this.revision = revision;
+        this.changedRevision = changedRevision;
+    }
+
+    /**
+     * Exports a subtree into the caches. The listings are cached by the revision each directory last changed in, like
+     * {@link SVNRepositoryView#getDirectory(String, long, long)} does, so that a later revision leaving the subtree
+     * unchanged finds it cached.
+     *
+     * @param view     the view, whose location is restored once done.
+     * @param path     the path of the subtree from the repository root.
+     * @param revision the revision.
+     * @param changedRevision the revision the subtree last changed in, as of {@code revision}.
+     * @throws SVNException if the subtree could not be exported, for instance because it is not a directory.
+     * @throws IOException  if the content could not be cached.
+     */
+    static void export(@NonNull SVNRepositoryView view, @NonNull String path, long revision, long changedRevision)
+            throws SVNException, IOException {
+        SVNRepository repository = view.getRepository();
+        SVNURL location = repository.getLocation();
+        long start = System.nanoTime();
+        SVNSubtreeExport editor = new SVNSubtreeExport(view, SVNPathUtil.getAbsolutePath(path), revision,
+                changedRevision);
+        repository.setLocation(repository.getRepositoryRoot(true).appendPath(path, false), false);
+        try {
+            repository.update(revision, null, SVNDepth.INFINITY, false, reporter -> {
+                // nothing local, so everything is sent
+                reporter.setPath("", null, revision, SVNDepth.INFINITY, true);
+                reporter.finishReport();
+            }, editor);
+        } finally {
+            editor.discard();
+            repository.setLocation(location, false);
+        }
+        LOGGER.log(Level.FINE, "Exported {0} files of {1}@{2} in {3}ms", new Object[]{editor.files, path, revision,
+                (System.nanoTime() - start) / 1000000});
+    }
+
+    private String toRepositoryPath(String path) {
+        return SVNPathUtil.append(root, path);
+    }
+
+    @Override
+    public void targetRevision(long revision) {
+    }
+
+    @Override
+    public void openRoot(long revision) {
+        directories.push(new Node(""));
+    }
+
+    @Override
+    public void deleteEntry(String path, long revision) {
+    }
+
+    @Override
+    public void absentDir(String path) {
+    }
+
+    @Override
+    public void absentFile(String path) {
+    }
+
+    @Override
+    public void addDir(String path, String copyFromPath, long copyFromRevision) {
+        directories.push(new Node(path));
+    }
+
+    @Override
+    public void openDir(String path, long revision) {
+        directories.push(new Node(path));
+    }
+
+    @Override
+    public void changeDirProperty(String name, SVNPropertyValue value) {
+        directories.getFirst().changeProperty(name, value);
+    }
+
+    @Override
+    public void closeDir() {
+        Node directory = directories.pop();
+        Node parent = directories.peek();
+        long changed = directory.changedRevision >= 0 ? directory.changedRevision
+                : parent == null ? changedRevision : revision;
+        view.putDirectory(toRepositoryPath(directory.path), revision, changed, directory.children);
+        if (parent != null) {
+            parent.children.add(directory.toChildEntry(SVNNodeKind.DIR));
+        }
+    }
+
+    @Override
+    public void addFile(String path, String copyFromPath, long copyFromRevision) {
+        file = new Node(path);
+    }
+
+    @Override
+    public void openFile(String path, long revision) {
+        file = new Node(path);
+    }
+
+    @Override
+    public void changeFileProperty(String path, String propertyName, SVNPropertyValue propertyValue) {
+        if (file != null) {
+            file.changeProperty(propertyName, propertyValue);
+        }
+    }
+
+    @Override
+    public void applyTextDelta(String path, String baseChecksum) throws SVNException {
+        try {
+            temp = SVNContentCache.createTempFile();
+            deltaProcessor.applyTextDelta(SVNFileUtil.DUMMY_IN, Files.newOutputStream(temp), false);
+        } catch (IOException e) {
+            throw error(e);
+        }
+    }
+
+    @Override
+    public OutputStream textDeltaChunk(String path, SVNDiffWindow diffWindow) throws SVNException {
+        return deltaProcessor.textDeltaChunk(diffWindow);
+    }
+
+    @Override
+    public void textDeltaEnd(String path) {
+        deltaProcessor.textDeltaEnd();
+    }
+
+    @Override
+    public void closeFile(String path, String textChecksum) throws SVNException {
+        Node closed = file;
+        file = null;
+        if (closed == null) {
+            return;
+        }
+        try {
+            if (temp != null && closed.changedRevision >= 0
+                    && SVNContentCache.store(view.getUuid(), view.getCredentialsId(), toRepositoryPath(path),
+                            closed.changedRevision, temp)) {
+                temp = null;
+            }
+        } catch (IOException e) {
+            throw error(e);
+        } finally {
+            discard();
+        }
+        directories.getFirst().children.add(closed.toChildEntry(SVNNodeKind.FILE));
+        files++;
+    }
+
+    @Override
+    public SVNCommitInfo closeEdit() {
+        return null;
+    }
+
+    @Override
+    public void abortEdit() {
+        discard();
+    }
+
+    /**
+     * Deletes the content of the current file unless it went to the cache.
+     */
+    private void discard() {
+        if (temp != null) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "could not delete " + temp, e);
+            }
+            temp = null;
+        }
+    }
+
+    private static SVNException error(IOException e) {
+        return new SVNException(new RemotableSVNErrorMessage(SVNErrorCode.IO_ERROR, e.getMessage(), e), e);
+    }
+
+    /**
+     * A directory or file being received.
+     */
+    private static final class Node {
+        private final String path;
+        private final List<SVNRepositoryView.ChildEntry> children = new ArrayList<>();
+        private long changedRevision = -1;
+        private long lastModified;
+
+        Node(String path) {
+            this.path = path;
+        }
+
+        void changeProperty(String name, SVNPropertyValue value) {
+            if (value == null) {
+                return;
+            }
+            if (SVNProperty.COMMITTED_REVISION.equals(name)) {
+                changedRevision = Long.parseLong(SVNPropertyValue.getPropertyAsString(value));
+            } else if (SVNProperty.COMMITTED_DATE.equals(name)) {
+                lastModified = SVNDate.parseDate(SVNPropertyValue.getPropertyAsString(value)).getTime();
+            }
+        }
+
+        SVNRepositoryView.ChildEntry toChildEntry(SVNNodeKind kind) {
+            return new SVNRepositoryView.ChildEntry(changedRevision, lastModified, kind, SVNPathUtil.tail(path));
+        }
+    }
+}
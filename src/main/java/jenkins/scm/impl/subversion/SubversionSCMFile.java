@@ -1,13 +1,15 @@
 package jenkins.scm.impl.subversion;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import org.apache.commons.io.output.DeferredFileOutputStream;
 import org.tmatesoft.svn.core.SVNDirEntry;
 import org.tmatesoft.svn.core.SVNException;
 import org.tmatesoft.svn.core.SVNNodeKind;
@@ -16,15 +18,32 @@ import jenkins.scm.api.SCMFile;
 
 public class SubversionSCMFile extends SCMFile {
 
+	/**
+	 * Size in bytes above which {@link #content()} spills to a temporary file rather than buffering in memory.
+	 */
+	static int CONTENT_MEMORY_THRESHOLD = Integer.getInteger(SubversionSCMFile.class.getName() + ".contentMemoryThreshold", 1024 * 1024);
+
 	private SubversionSCMFileSystem fs;
+	/**
+	 * The entry of this file in the listing of its parent, if it was obtained by listing the parent.
+	 */
+	@CheckForNull
+	private final SVNRepositoryView.ChildEntry entry;
 
 	SubversionSCMFile(SubversionSCMFileSystem fs) {
 		this.fs = fs;
+		this.entry = null;
 	}
 
 	SubversionSCMFile(SubversionSCMFile parent, String name, SubversionSCMFileSystem fs) {
+		this(parent, name, fs, null);
+	}
+
+	private SubversionSCMFile(SubversionSCMFile parent, String name, SubversionSCMFileSystem fs,
+			@CheckForNull SVNRepositoryView.ChildEntry entry) {
 		super(parent, name);
 		this.fs = fs;
+		this.entry = entry;
 	}
 
 	@Override
@@ -36,10 +55,16 @@ public class SubversionSCMFile extends SCMFile {
 	public Iterable<SCMFile> children() throws IOException, InterruptedException {
 		try {
 			List<SCMFile> result = new ArrayList<>();
-			Collection<SVNDirEntry> dirEntries = new ArrayList<>();
-			fs.getRepository().getDir(getPath(), fs.getLatestRevision(), null, 0, dirEntries);
-			for (SVNDirEntry e : dirEntries) {
-				result.add(newChild(e.getName(), false));
+			if (entry != null && entry.getType() != SVNNodeKind.DIR) {
+				return result;
+			}
+			SVNRepositoryView.ChildEntry[] children = fs.getChildren(getPath(), fs.getLatestRevision(),
+					entry != null ? entry.getRevision() : -1);
+			if (children != null) {
+				for (SVNRepositoryView.ChildEntry e : children) {
+					// the listing carries kind, time and revision, so the children need no further round trip
+					result.add(new SubversionSCMFile(this, e.getName(), fs, e));
+				}
 			}
 			return result;
 		} catch (SVNException e) {
@@ -49,6 +74,9 @@ public class SubversionSCMFile extends SCMFile {
 	
 	@Override
 	public long lastModified() throws IOException, InterruptedException {
+		if (entry != null) {
+			return entry.getLastModified();
+		}
 		return getInfo().getDate().getTime();
 	}
 
@@ -58,7 +86,8 @@ public class SubversionSCMFile extends SCMFile {
 			return Type.DIRECTORY;
 		} else {
 			try {
-				SVNNodeKind nodeKind = fs.getRepository().checkPath(getPath(), fs.getLatestRevision());
+				SVNNodeKind nodeKind = entry != null ? entry.getType()
+						: fs.getNode(getPath(), fs.getLatestRevision()).getType();
 				switch (nodeKind.toString()) {
 				case "file":
 					return Type.REGULAR_FILE;
@@ -75,21 +104,56 @@ public class SubversionSCMFile extends SCMFile {
 		}
 	}
 
+	/**
+	 * Returns the content, from the {@link SVNContentCache} when the revision the file last changed in is known.
+	 * Otherwise it is kept in memory up to {@link #CONTENT_MEMORY_THRESHOLD} bytes and spilled to a temporary
+	 * file deleted once the stream is closed beyond that. The session is not thread safe so it cannot feed a pipe
+	 * read while the caller keeps using the file system.
+	 */
 	@Override
 	public InputStream content() throws IOException, InterruptedException {
-		ByteArrayOutputStream contents = new ByteArrayOutputStream();
 		try {
-			fs.getRepository().getFile(getPath(), fs.getLatestRevision(), null, contents);
-			return new ByteArrayInputStream(contents.toByteArray());
+			InputStream cached = fs.getContent(getPath(), fs.getLatestRevision(),
+					entry != null && entry.getType() == SVNNodeKind.FILE ? entry.getRevision() : -1);
+			if (cached != null) {
+				return cached;
+			}
 		} catch (SVNException e) {
+			fs.invalidate();
 			throw new IOException("failed to fetch file: " + getPath(), e);
 		}
+		DeferredFileOutputStream contents = DeferredFileOutputStream.builder()
+				.setThreshold(CONTENT_MEMORY_THRESHOLD)
+				.setPrefix("svn-content")
+				.setSuffix(".tmp")
+				.get();
+		try {
+			try {
+				fs.getRepository().getFile(getPath(), fs.getLatestRevision(), null, contents);
+			} finally {
+				contents.close();
+			}
+			if (contents.isInMemory()) {
+				return new ByteArrayInputStream(contents.getData());
+			}
+			return Files.newInputStream(contents.getFile().toPath(), StandardOpenOption.DELETE_ON_CLOSE);
+		} catch (SVNException | IOException | RuntimeException e) {
+			if (!contents.isInMemory()) {
+				Files.deleteIfExists(contents.getFile().toPath());
+			}
+			if (e instanceof SVNException) {
+				fs.invalidate();
+				throw new IOException("failed to fetch file: " + getPath(), e);
+			}
+			throw e;
+		}
 	}
 
 	private SVNDirEntry getInfo() throws IOException {
 		try {
 			return fs.getRepository().info(getPath(), fs.getLatestRevision());
 		} catch (SVNException e) {
+			fs.invalidate();
 			throw new IOException("failed to get file info for " + getPath(), e);
 		}
 	}
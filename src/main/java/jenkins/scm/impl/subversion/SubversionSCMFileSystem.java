@@ -1,15 +1,17 @@
 package jenkins.scm.impl.subversion;
 
-import java.io.File;
 import java.io.IOException;
-import java.util.concurrent.TimeUnit;
+import java.io.InputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import org.tmatesoft.svn.core.SVNDirEntry;
 import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNNodeKind;
 import org.tmatesoft.svn.core.SVNURL;
-import org.tmatesoft.svn.core.auth.ISVNAuthenticationManager;
+import org.tmatesoft.svn.core.internal.util.SVNPathUtil;
 import org.tmatesoft.svn.core.io.SVNRepository;
-import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
-import org.tmatesoft.svn.core.wc.SVNWCUtil;
 
 import com.cloudbees.jenkins.plugins.sshcredentials.SSHUserPrivateKey;
 import com.cloudbees.plugins.credentials.CredentialsMatchers;
@@ -19,12 +21,8 @@ import com.cloudbees.plugins.credentials.domains.URIRequirementBuilder;
 
 import hudson.Extension;
 import hudson.model.Item;
-import hudson.scm.CredentialsSVNAuthenticationProviderImpl;
-import hudson.scm.FilterSVNAuthenticationManager;
 import hudson.scm.SCM;
 import hudson.scm.SCMDescriptor;
-import hudson.scm.SVNAuthStoreHandlerImpl;
-import hudson.scm.SVNAuthenticationManager;
 import hudson.scm.SubversionSCM;
 import hudson.scm.SubversionSCM.ModuleLocation;
 import hudson.security.ACL;
@@ -38,11 +36,80 @@ import jenkins.scm.impl.subversion.SubversionSCMSource.SCMRevisionImpl;
 
 public class SubversionSCMFileSystem extends SCMFileSystem {
 	public static final String DISABLE_PROPERTY = SubversionSCMFileSystem.class.getName() + ".disable";
-	private SVNRepository repo;
+	private static final Logger LOGGER = Logger.getLogger(SubversionSCMFileSystem.class.getName());
+	/**
+	 * Whether listing a directory that is not cached yet exports its whole subtree in a single exchange, so that a
+	 * walk of the subtree, such as the load of a library, reads everything from the caches. Off by default, as it
+	 * downloads everything below the directory listed even when only a few files are read, which for the root of a
+	 * large tree is far more than the walk needs.
+	 */
+	static boolean BULK_EXPORT = Boolean.getBoolean(SubversionSCMFileSystem.class.getName() + ".bulkExport");
+	private final SVNRepositoryView view;
+	/**
+	 * The path of the location from the repository root.
+	 */
+	private final String rootPath;
+	/**
+	 * The revision all operations read, HEAD is resolved once when no revision is given so that a walk of the tree
+	 * sees a consistent snapshot.
+	 */
+	private final SCMRevisionImpl pinned;
+	/**
+	 * The revision the location last changed in as of {@link #pinned}, {@code -2} until looked up.
+	 */
+	private long rootChangedRevision = -2;
 
+	/**
+	 * @deprecated use {@link #SubversionSCMFileSystem(SVNRepositoryView, SCMHead, SCMRevision)}, nothing read through
+	 * a session opened by the caller is cached, and the caller stays in charge of closing it.
+	 * @throws IllegalStateException if the repository could not be accessed.
+	 */
+	@Deprecated
 	protected SubversionSCMFileSystem(SVNRepository repo, SCMRevision rev) {
+		this(Snapshot.of(repo, rev), rev);
+	}
+
+	protected SubversionSCMFileSystem(SVNRepositoryView view, @CheckForNull SCMHead head, SCMRevision rev) throws SVNException {
+		this(new Snapshot(view, head, rev), rev);
+	}
+
+	private SubversionSCMFileSystem(Snapshot snapshot, SCMRevision rev) {
 		super(rev);
-		this.repo = repo;
+		this.view = snapshot.view;
+		this.rootPath = snapshot.rootPath;
+		this.pinned = snapshot.pinned;
+	}
+
+	/**
+	 * The location and revision a file system reads, resolved before it is created.
+	 */
+	private static final class Snapshot {
+		private final SVNRepositoryView view;
+		private final String rootPath;
+		private final SCMRevisionImpl pinned;
+
+		Snapshot(SVNRepositoryView view, @CheckForNull SCMHead head, SCMRevision rev) throws SVNException {
+			this.view = view;
+			this.rootPath = SubversionSCM.DescriptorImpl.getRelativePath(view.getRepository().getLocation(), view.getRepository());
+			if (rev instanceof SCMRevisionImpl) {
+				this.pinned = (SCMRevisionImpl) rev;
+			} else {
+				// the repository root has no path to name the head after
+				String name = rootPath.length() > 1 ? rootPath.substring(1) : view.getRepository().getLocation().toString();
+				this.pinned = new SCMRevisionImpl(head != null ? head : new SCMHead(name), view.getLatestRevision());
+			}
+		}
+
+		/**
+		 * Resolves what a session opened by the caller reads, for the constructor that did not access the repository.
+		 */
+		static Snapshot of(SVNRepository repo, SCMRevision rev) {
+			try {
+				return new Snapshot(new SVNRepositoryView(repo), null, rev);
+			} catch (SVNException e) {
+				throw new IllegalStateException("Could not access " + repo.getLocation(), e);
+			}
+		}
 	}
 
 	@Override
@@ -56,22 +123,163 @@ public class SubversionSCMFileSystem extends SCMFileSystem {
 	}
 
 	SVNRepository getRepository() {
-		return repo;
+		return view.getRepository();
+	}
+
+	/**
+	 * Keeps the session from being re-used once the file system is closed, after {@link #getRepository()} failed.
+	 */
+	void invalidate() {
+		view.invalidate();
 	}
-	
+
+	/**
+	 * Gets a node, directory listings are cached by path and revision.
+	 *
+	 * @param path the path relative to the location.
+	 * @param revision the revision.
+	 * @return the node.
+	 */
+	SVNRepositoryView.NodeEntry getNode(String path, long revision) throws SVNException {
+		return view.getNode(toRepositoryPath(path), revision);
+	}
+
+	/**
+	 * Lists a directory. Listings are cached by the revision the directory last changed in, which is looked up from
+	 * the listing of its parent unless known, so that they are shared by all the revisions up to its next change.
+	 * With {@link #BULK_EXPORT}, a directory that is not cached yet has its whole subtree exported into the caches
+	 * first.
+	 *
+	 * @param path the path relative to the location.
+	 * @param revision the revision.
+	 * @param changedRevision the revision the directory last changed in, or {@code -1} to look it up.
+	 * @return the children or {@code null} if it is not a directory.
+	 */
+	@CheckForNull
+	SVNRepositoryView.ChildEntry[] getChildren(String path, long revision, long changedRevision)
+			throws IOException, SVNException {
+		String repositoryPath = toRepositoryPath(path);
+		if (changedRevision < 0) {
+			if (path.isEmpty()) {
+				changedRevision = getRootChangedRevision(revision);
+			} else {
+				SVNRepositoryView.ChildEntry entry = getEntry(path, revision);
+				changedRevision = entry != null && entry.getType() == SVNNodeKind.DIR ? entry.getRevision() : -1;
+			}
+			if (changedRevision < 0) {
+				return null;
+			}
+		}
+		if (BULK_EXPORT && SVNContentCache.MAX_SIZE > 0 && view.isCaching()
+				&& !view.isCached(repositoryPath, changedRevision)) {
+			try {
+				SVNSubtreeExport.export(view, repositoryPath, revision, changedRevision);
+			} catch (SVNException e) {
+				view.invalidate();
+				LOGGER.log(Level.FINE, "could not export " + repositoryPath + "@" + revision + ", listing it instead", e);
+			}
+		}
+		return view.getDirectory(repositoryPath, revision, changedRevision).getChildren();
+	}
+
+	/**
+	 * Looks up the entry of a path in the listing of its parent.
+	 *
+	 * @return the entry or {@code null} if there is no such path.
+	 */
+	@CheckForNull
+	private SVNRepositoryView.ChildEntry getEntry(String path, long revision) throws IOException, SVNException {
+		SVNRepositoryView.ChildEntry[] siblings = getChildren(SVNPathUtil.removeTail(path), revision, -1);
+		if (siblings != null) {
+			String name = SVNPathUtil.tail(path);
+			for (SVNRepositoryView.ChildEntry sibling : siblings) {
+				if (sibling.getName().equals(name)) {
+					return sibling;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the revision the location last changed in, or {@code -1} if it is not a directory.
+	 */
+	private long getRootChangedRevision(long revision) throws SVNException {
+		if (revision != pinned.getRevision()) {
+			return lookUpChangedRevision(revision);
+		}
+		if (rootChangedRevision == -2) {
+			rootChangedRevision = lookUpChangedRevision(revision);
+		}
+		return rootChangedRevision;
+	}
+
+	private long lookUpChangedRevision(long revision) throws SVNException {
+		SVNDirEntry info;
+		try {
+			info = view.getRepository().info("", revision);
+		} catch (SVNException e) {
+			view.invalidate();
+			throw e;
+		}
+		return info != null && info.getKind() == SVNNodeKind.DIR ? info.getRevision() : -1;
+	}
+
+	/**
+	 * Gets a file, from the content cache if the revision it last changed in is known and cached.
+	 *
+	 * @param path the path relative to the location.
+	 * @param revision the revision.
+	 * @param changedRevision the revision the file last changed in, or {@code -1} to look it up.
+	 * @return the content or {@code null} if it is not known to be a file.
+	 */
+	@CheckForNull
+	InputStream getContent(String path, long revision, long changedRevision) throws IOException, SVNException {
+		if (SVNContentCache.MAX_SIZE <= 0 || !view.isCaching()) {
+			return null;
+		}
+		String repositoryPath = toRepositoryPath(path);
+		if (changedRevision < 0) {
+			changedRevision = getChangedRevision(path, revision);
+		}
+		if (changedRevision < 0) {
+			return null;
+		}
+		InputStream cached = SVNContentCache.get(view.getUuid(), view.getCredentialsId(), repositoryPath, changedRevision);
+		if (cached != null) {
+			return cached;
+		}
+		// the content at the revision asked for, a copied file may not exist at its path in the revision it last changed
+		return SVNContentCache.put(view.getUuid(), view.getCredentialsId(), repositoryPath, changedRevision,
+				out -> view.getRepository().getFile(path, revision, null, out));
+	}
+
+	/**
+	 * Looks up the revision a file last changed in from the cached listing of its parent.
+	 *
+	 * @return the revision or {@code -1} if it is not a file.
+	 */
+	private long getChangedRevision(String path, long revision) throws IOException, SVNException {
+		SVNRepositoryView.ChildEntry entry = getEntry(path, revision);
+		return entry != null && entry.getType() == SVNNodeKind.FILE ? entry.getRevision() : -1;
+	}
+
+	private String toRepositoryPath(String path) {
+		return SVNPathUtil.append(rootPath, path);
+	}
+
+	/**
+	 * @return the revision given when this file system was built or, failing that, the revision HEAD resolved to.
+	 */
 	@Override
 	public SubversionSCMSource.SCMRevisionImpl getRevision() {
-		return (SCMRevisionImpl) super.getRevision();
+		return pinned;
 	}
-	
-	long getLatestRevision() throws SVNException {
-		if (isFixedRevision()) {
-			return getRevision().getRevision();
-		} else {
-			return repo.getLatestRevision();
-		}
+
+	long getLatestRevision() {
+		return pinned.getRevision();
 	}
-	
+
 	@Extension
 	public static class BuilderImpl extends SCMFileSystem.Builder {
 		public final boolean ENABLED = !"true".equalsIgnoreCase(System.getProperty(DISABLE_PROPERTY));
@@ -99,11 +307,16 @@ public class SubversionSCMFileSystem extends SCMFileSystem {
 		@Override
 		public SCMFileSystem build(SCMSource source, SCMHead head, SCMRevision rev)
 				throws IOException, InterruptedException {
-            return build(source.getOwner(), source.build(head, rev), rev);
+            return build(source.getOwner(), source.build(head, rev), head, rev);
 		}
 		
 		@Override
 		public SCMFileSystem build(Item owner, SCM scm, SCMRevision rev) throws IOException, InterruptedException {
+			return build(owner, scm, rev == null ? null : rev.getHead(), rev);
+		}
+
+		private SCMFileSystem build(Item owner, SCM scm, @CheckForNull SCMHead head, SCMRevision rev)
+				throws IOException, InterruptedException {
 			if (rev != null && !(rev instanceof SubversionSCMSource.SCMRevisionImpl)) {
 				return null;
 			}
@@ -120,44 +333,22 @@ public class SubversionSCMFileSystem extends SCMFileSystem {
 									CredentialsMatchers.anyOf(CredentialsMatchers.instanceOf(StandardCredentials.class),
 											CredentialsMatchers.instanceOf(SSHUserPrivateKey.class))));
 				}
-				SVNRepository repository = createRepository(repoURL, credentials);
-				return new SubversionSCMFileSystem(repository, rev);
+				SVNRepositoryView view = SVNRepositoryView.open(repoURL, credentials);
+				try {
+					return new SubversionSCMFileSystem(view, head, rev);
+				} catch (SVNException e) {
+					view.invalidate();
+					view.release();
+					throw e;
+				}
 			} catch (SVNException e) {
 				throw new IOException("failed to create SVNRepositoryView", e);
 			}
 		}
-
-		// Copied from SVNRepositoryView
-		private SVNRepository createRepository(SVNURL repoURL, StandardCredentials credentials) throws SVNException {
-			SVNRepository repository = null;
-			repository = SVNRepositoryFactory.create(repoURL);
-			File configDir = SVNWCUtil.getDefaultConfigurationDirectory();
-
-			ISVNAuthenticationManager sam = new SVNAuthenticationManager(configDir, null, null);
-
-			sam.setAuthenticationProvider(new CredentialsSVNAuthenticationProviderImpl(credentials));
-			SVNAuthStoreHandlerImpl.install(sam);
-			sam = new FilterSVNAuthenticationManager(sam) {
-				// If there's no time out, the blocking read operation may hang forever, because TCP itself
-				// has no timeout. So always use some time out. If the underlying implementation gives us some
-				// value (which may come from ~/.subversion), honor that, as long as it sets some timeout value.
-				@Override
-				public int getReadTimeout(SVNRepository repository) {
-					int r = super.getReadTimeout(repository);
-					if (r <= 0) {
-						r = (int) TimeUnit.MINUTES.toMillis(1);
-					}
-					return r;
-				}
-			};
-			repository.setTunnelProvider(SVNWCUtil.createDefaultOptions(true));
-			repository.setAuthenticationManager(sam);
-			return repository;
-		}
 	}
 
 	@Override
 	public void close() {
-		repo.closeSession();
+		view.release();
 	}
 }
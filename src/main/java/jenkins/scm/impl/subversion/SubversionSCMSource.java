@@ -45,6 +45,7 @@ import hudson.model.TaskListener;
 import hudson.scm.CredentialsSVNAuthenticationProviderImpl;
 import hudson.scm.FilterSVNAuthenticationManager;
 import hudson.scm.RepositoryBrowser;
+import hudson.scm.SubversionHookMetrics;
 import hudson.scm.SubversionRepositoryBrowser;
 import hudson.scm.SubversionRepositoryStatus;
 import hudson.scm.SubversionSCM;
@@ -53,9 +54,12 @@ import hudson.scm.subversion.UpdateUpdater;
 import hudson.scm.subversion.WorkspaceUpdater;
 import hudson.scm.subversion.WorkspaceUpdaterDescriptor;
 import hudson.security.ACL;
+import hudson.util.DaemonThreadFactory;
 import hudson.util.EditDistance;
 import hudson.util.FormValidation;
 import hudson.util.ListBoxModel;
+import hudson.util.LogTaskListener;
+import hudson.util.NamingThreadFactory;
 import jenkins.scm.api.SCMHead;
 import jenkins.scm.api.SCMHeadObserver;
 import jenkins.scm.api.SCMRevision;
@@ -91,8 +95,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
@@ -104,6 +107,16 @@ import java.util.StringTokenizer;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
@@ -113,6 +126,7 @@ import java.util.stream.Collectors;
 import jenkins.model.Jenkins;
 import jenkins.scm.api.SCMHeadEvent;
 import jenkins.util.JenkinsJVM;
+import jenkins.util.Timer;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
 import org.kohsuke.stapler.DataBoundSetter;
@@ -129,6 +143,27 @@ public class SubversionSCMSource extends SCMSource {
 
     public static final Logger LOGGER = Logger.getLogger(SubversionSCMSource.class.getName());
 
+    /**
+     * Maximum number of directories explored concurrently, each over its own session, when indexing branches.
+     * The default of {@code 1} explores the repository sequentially.
+     */
+    static int FETCH_PARALLELISM = Math.max(1, Integer.getInteger(SubversionSCMSource.class.getName() + ".fetchParallelism", 1));
+
+    /**
+     * Property to disable the re-use of the previous index for the branches untouched by the commits since then.
+     */
+    static boolean INCREMENTAL_INDEXING =
+            !Boolean.getBoolean(SubversionSCMSource.class.getName() + ".disableIncrementalIndexing");
+
+    /**
+     * How old, in milliseconds, the previous index may be for its heads to be returned straight away while a fresh
+     * index is taken in the background. This only applies to full scans, not to events nor to retrieving some heads,
+     * and the previous index is only kept in memory, so the first scan after a restart is live. The default of
+     * {@code 0} always indexes live.
+     */
+    static long STALE_INDEX_TOLERANCE =
+            Long.getLong(SubversionSCMSource.class.getName() + ".staleIndexTolerance", 0L);
+
     private final String remoteBase;
 
     private String credentialsId = ""; // TODO null would be a better default, but need to check null safety on usages
@@ -144,6 +179,18 @@ public class SubversionSCMSource extends SCMSource {
     @GuardedBy("this")
     private transient String uuid;
 
+    /**
+     * The result of the last complete index, used to only re-probe the branches changed since.
+     */
+    @GuardedBy("this")
+    private transient IndexState indexState;
+
+    /**
+     * Whether an index is being taken in the background, see {@link #STALE_INDEX_TOLERANCE}.
+     */
+    @GuardedBy("this")
+    private transient boolean refreshing;
+
     @Deprecated
     public SubversionSCMSource(String id, String remoteBase, String credentialsId, String includes, String excludes) {
         super(id);
@@ -274,6 +321,27 @@ public class SubversionSCMSource extends SCMSource {
                             @CheckForNull SCMHeadEvent<?> event,
                             @NonNull TaskListener listener) 
                             throws IOException, InterruptedException {
+        // an event or an observer after some heads only wants those looked at now, not a stale list of all of them
+        if (STALE_INDEX_TOLERANCE > 0 && event == null && observer.getIncludes() == null) {
+            IndexState previous = getIndexState(criteria);
+            if (previous != null && System.currentTimeMillis() - previous.timestamp < STALE_INDEX_TOLERANCE) {
+                listener.getLogger().println("Using the index of revision " + previous.revision + " taken "
+                        + (System.currentTimeMillis() - previous.timestamp) / 1000 + "s ago, refreshing it in the background");
+                replay(previous, Collections.emptySet(), observer);
+                refreshInBackground(criteria);
+                return;
+            }
+        }
+        index(criteria, observer, listener);
+    }
+
+    /**
+     * Takes a fresh index.
+     */
+    private void index(@CheckForNull SCMSourceCriteria criteria,
+                       @NonNull final SCMHeadObserver observer,
+                       @NonNull TaskListener listener) throws IOException, InterruptedException {
+        long timestamp = System.currentTimeMillis();
         SVNRepositoryView repository = null;
         try {
             listener.getLogger().println("Opening conection to " + remoteBase);
@@ -282,17 +350,36 @@ public class SubversionSCMSource extends SCMSource {
 
             String repoPath = SubversionSCM.DescriptorImpl.getRelativePath(repoURL, repository.getRepository());
             List<String> prefix = Collections.emptyList();
-            fetch(listener,
-                    repository,
-                    repoPath,
-                    toPaths(splitCludes(includes)),
-                    prefix,
-                    prefix,
-                    toPaths(splitCludes(excludes)),
-                    criteria,
-                    observer
-            );
+            BranchMatcher matcher = BranchMatcher.compile(toPaths(splitCludes(includes)), toPaths(splitCludes(excludes)));
+            long indexRevision = repository.getLatestRevision();
+            IndexState previous = INCREMENTAL_INDEXING ? getIndexState(criteria) : null;
+            RecordingObserver recorder = new RecordingObserver(observer);
+            if (previous != null && previous.revision <= indexRevision && fetchIncrementally(listener, repository, repoPath, matcher,
+                    criteria, recorder, previous, indexRevision)) {
+                listener.getLogger().println("Reused index of revision " + previous.revision + " for unchanged branches");
+            } else if (FETCH_PARALLELISM > 1) {
+                try (ParallelFetchExecutor executor = new ParallelFetchExecutor(repository, FETCH_PARALLELISM)) {
+                    executor.execute(session -> fetch(listener, session, repoPath, matcher.root(), prefix, criteria,
+                            recorder, executor));
+                    executor.await();
+                }
+            } else {
+                fetch(listener,
+                        repository,
+                        repoPath,
+                        matcher.root(),
+                        prefix,
+                        criteria,
+                        recorder
+                );
+            }
+            if ((INCREMENTAL_INDEXING || STALE_INDEX_TOLERANCE > 0) && isObserving(recorder)) {
+                // only a complete walk is a valid base for the next index
+                setIndexState(new IndexState(indexRevision, timestamp, includes, excludes, criteria,
+                        recorder.getHeads()));
+            }
         } catch (SVNException e) {
+            invalidate(repository);
             e.printStackTrace(listener.error("Could not communicate with Subversion server"));
             throw new IOException(e);
         } finally {
@@ -302,20 +389,75 @@ public class SubversionSCMSource extends SCMSource {
 
     /**
      * {@inheritDoc}
+     * <p>
+     * The revision of a head is the same as when indexing, see {@link #fetchRevisions(Collection, TaskListener)}, so
+     * that a head only compares unequal to what it was indexed at once it changed.
      */
     @Override
     protected SCMRevision retrieve(@NonNull SCMHead head, @NonNull TaskListener listener)
             throws IOException {
+        return fetchRevisions(Collections.singletonList(head), listener).get(head);
+    }
+
+    /**
+     * Resolves the current revisions of several heads in a single session. Heads sharing a parent directory, such as
+     * the branches under {@code branches/}, are all resolved from one listing of that directory.
+     *
+     * <p>
+     * The revision of a head is the revision its directory last changed in, as reported when indexing, rather than
+     * the youngest revision of the repository, so that it stays the same across commits to other heads. A head that
+     * was not at its path in that revision, because one of its parents was moved since, is at {@code -1} (HEAD).
+     *
+     * @param heads    the heads.
+     * @param listener the listener.
+     * @return the revision of each head that exists.
+     * @throws IOException if the repository could not be accessed.
+     */
+    @NonNull
+    public Map<SCMHead, SCMRevision> fetchRevisions(@NonNull Collection<? extends SCMHead> heads,
+                                                    @NonNull TaskListener listener) throws IOException {
+        Map<SCMHead, SCMRevision> result = new HashMap<>();
+        if (heads.isEmpty()) {
+            return result;
+        }
+        SortedMap<String, List<SCMHead>> byParent = new TreeMap<>();
+        for (SCMHead head : heads) {
+            String name = StringUtils.removeEnd(head.getName(), "/");
+            byParent.computeIfAbsent(name.contains("/") ? StringUtils.substringBeforeLast(name, "/") : "",
+                    k -> new ArrayList<>()).add(head);
+        }
         SVNRepositoryView repository = null;
         try {
             listener.getLogger().println("Opening connection to " + remoteBase);
             SVNURL repoURL = SVNURL.parseURIEncoded(remoteBase);
             repository = openSession(repoURL, getOwner());
             String repoPath = SubversionSCM.DescriptorImpl.getRelativePath(repoURL, repository.getRepository());
-            String path = SVNPathUtil.append(repoPath, head.getName());
-            SVNRepositoryView.NodeEntry svnEntry = repository.getNode(path, -1);
-            return new SCMRevisionImpl(head, svnEntry.getRevision());
+            for (Map.Entry<String, List<SCMHead>> entry : byParent.entrySet()) {
+                String parentPath = SVNPathUtil.append(repoPath, entry.getKey());
+                SVNRepositoryView.NodeEntry parent = repository.getNode(parentPath, -1);
+                if (!SVNNodeKind.DIR.equals(parent.getType()) || parent.getChildren() == null) {
+                    continue;
+                }
+                Map<String, SVNRepositoryView.ChildEntry> children = new HashMap<>();
+                for (SVNRepositoryView.ChildEntry child : parent.getChildren()) {
+                    if (child.getType() == SVNNodeKind.DIR) {
+                        children.put(child.getName(), child);
+                    }
+                }
+                for (SCMHead head : entry.getValue()) {
+                    SVNRepositoryView.ChildEntry child =
+                            children.get(StringUtils.substringAfterLast("/" + StringUtils.removeEnd(head.getName(), "/"), "/"));
+                    if (child != null) {
+                        // the same listing as when the head is indexed
+                        boolean olderThanRoot = repository.getDirectory(SVNPathUtil.append(parentPath, child.getName()),
+                                child.getRevision()).getType() == SVNNodeKind.NONE;
+                        result.put(head, new SCMRevisionImpl(head, olderThanRoot ? -1 : child.getRevision()));
+                    }
+                }
+            }
+            return result;
         } catch (SVNException e) {
+            invalidate(repository);
             throw new IOException(e);
         } finally {
             closeSession(repository);
@@ -351,6 +493,7 @@ public class SubversionSCMSource extends SCMSource {
             }
             return new SCMRevisionImpl(new SCMHead(base), revision == -1 ? resolvedRevision : revision);
         } catch (SVNException e) {
+            invalidate(repository);
             throw new IOException(e);
         } finally {
             closeSession(repository);
@@ -369,12 +512,21 @@ public class SubversionSCMSource extends SCMSource {
 
     private static void closeSession(@CheckForNull SVNRepositoryView repository) {
         if (repository != null) {
-            repository.close();
+            repository.release();
+        }
+    }
+
+    /**
+     * Keeps a session that failed from being re-used.
+     */
+    private static void invalidate(@CheckForNull SVNRepositoryView repository) {
+        if (repository != null) {
+            repository.invalidate();
         }
     }
 
     private SVNRepositoryView openSession(SVNURL repoURL, Item context) throws SVNException, IOException {
-        return new SVNRepositoryView(repoURL, credentialsId == null ? null : CredentialsMatchers
+        return SVNRepositoryView.open(repoURL, credentialsId == null ? null : CredentialsMatchers
                 .firstOrNull(CredentialsProvider.lookupCredentials(StandardCredentials.class, context,
                         ACL.SYSTEM, URIRequirementBuilder.fromUri(repoURL.toString()).build()),
                         CredentialsMatchers.allOf(CredentialsMatchers.withId(credentialsId),
@@ -385,262 +537,535 @@ public class SubversionSCMSource extends SCMSource {
     void fetch(@NonNull TaskListener listener,
                @NonNull final SVNRepositoryView repository,
                @NonNull final String repoPath,
-               @NonNull SortedSet<List<String>> paths,
-               @NonNull List<String> prefix,
+               @NonNull BranchMatcher.State state,
                @NonNull List<String> realPath,
-               @NonNull SortedSet<List<String>> excludedPaths,
                @CheckForNull SCMSourceCriteria branchCriteria,
                @NonNull SCMHeadObserver observer) throws IOException, SVNException, InterruptedException {
+        fetch(listener, repository, repoPath, state, realPath, branchCriteria, observer,
+                task -> task.run(repository));
+    }
+
+    void fetch(@NonNull TaskListener listener,
+               @NonNull final SVNRepositoryView repository,
+               @NonNull final String repoPath,
+               @NonNull BranchMatcher.State state,
+               @NonNull List<String> realPath,
+               @CheckForNull SCMSourceCriteria branchCriteria,
+               @NonNull SCMHeadObserver observer,
+               @NonNull FetchExecutor executor) throws IOException, SVNException, InterruptedException {
+        if (!isObserving(observer)) {
+            return;
+        }
         String svnPath = SVNPathUtil.append(repoPath, StringUtils.join(realPath, '/'));
-        assert prefix.size() == realPath.size();
-        assert wildcardStartsWith(realPath, prefix);
-        SortedMap<List<String>, SortedSet<List<String>>> includePaths = groupPaths(paths, prefix);
         listener.getLogger().println("Checking directory " + svnPath + "@HEAD");
         SVNRepositoryView.NodeEntry node = repository.getNode(svnPath, -1);
         if (!SVNNodeKind.DIR.equals(node.getType()) || node.getChildren() == null) {
             return;
         }
-        for (Map.Entry<List<String>, SortedSet<List<String>>> entry : includePaths.entrySet()) {
-            for (List<String> path : entry.getValue()) {
-                String name = path.get(prefix.size());
-                SVNRepositoryView.ChildEntry[] children = node.getChildren().clone();
-                Arrays.sort(children, Comparator.comparingLong(SVNRepositoryView.ChildEntry::getRevision).reversed());
-                for (final SVNRepositoryView.ChildEntry svnEntry : children) {
-                    if (svnEntry.getType() == SVNNodeKind.DIR && isMatch(svnEntry.getName(), name)) {
-                        List<String> childPrefix = copyAndAppend(prefix, name);
-                        List<String> childRealPath = copyAndAppend(realPath, svnEntry.getName());
-                        if (wildcardStartsWith(childRealPath, excludedPaths)) {
-                            continue;
+        // the children are already most recently changed first
+        for (final SVNRepositoryView.ChildEntry svnEntry : node.getChildren()) {
+            if (svnEntry.getType() != SVNNodeKind.DIR) {
+                continue;
+            }
+            BranchMatcher.State childState = state.child(svnEntry.getName());
+            if (childState == null) {
+                continue;
+            }
+            if (!isObserving(observer)) {
+                return;
+            }
+            List<String> childRealPath = copyAndAppend(realPath, svnEntry.getName());
+            if (childState.isBranch()) {
+                executor.execute(session -> fetchCandidate(listener, session, repoPath, childRealPath,
+                        svnEntry, branchCriteria, observer));
+            }
+            if (childState.hasChildren()) {
+                executor.execute(session -> fetch(listener, session, repoPath, childState, childRealPath,
+                        branchCriteria, observer, executor));
+            }
+        }
+    }
+
+    /**
+     * Checks a candidate branch against the criteria and reports it to the observer if it is a match.
+     */
+    private void fetchCandidate(@NonNull TaskListener listener,
+                                @NonNull final SVNRepositoryView repository,
+                                @NonNull final String repoPath,
+                                @NonNull List<String> childRealPath,
+                                @NonNull SVNRepositoryView.ChildEntry svnEntry,
+                                @CheckForNull SCMSourceCriteria branchCriteria,
+                                @NonNull SCMHeadObserver observer) throws IOException, SVNException, InterruptedException {
+        final String childPath = StringUtils.join(childRealPath, '/');
+        final String candidateRootPath = SVNPathUtil.append(repoPath, childPath);
+        final long lastModified = svnEntry.getLastModified();
+        listener.getLogger().println(
+                "Checking candidate branch " + candidateRootPath + "@HEAD");
+        // the branch at HEAD is the branch as of its last change, list it there once and probe that listing
+        long candidateRevision = svnEntry.getRevision();
+        SVNRepositoryView.NodeEntry candidateRoot = repository.getDirectory(candidateRootPath, candidateRevision);
+        final boolean olderThanRoot = candidateRoot.getType() == SVNNodeKind.NONE;
+        if (olderThanRoot) {
+            // not at its path as of its last change, as a parent was moved since, so probe the youngest revision
+            // with the listings cached by the revisions they last changed in
+            candidateRevision = repository.getLatestRevision();
+            candidateRoot = repository.getDirectory(candidateRootPath, candidateRevision, svnEntry.getRevision());
+        }
+        final long probeRevision = candidateRevision;
+        final long branchRevision = olderThanRoot ? -1 : candidateRevision;
+        final SVNRepositoryView.NodeEntry branchRoot = candidateRoot;
+        if (branchCriteria == null || branchCriteria.isHead(
+                new SCMSourceCriteria.Probe() {
+                    @Override
+                    public String name() {
+                        return childPath;
+                    }
+
+                    @Override
+                    public long lastModified() {
+                        return lastModified;
+                    }
+
+                    @Override
+                    public boolean exists(@NonNull String path) throws IOException {
+                        try {
+                            return exists(branchRoot, path);
+                        } catch (SVNException e) {
+                            throw new IOException(e);
                         }
-                        if (path.equals(childPrefix)) {
-                            final String childPath = StringUtils.join(childRealPath, '/');
-                            final String candidateRootPath = SVNPathUtil.append(repoPath, childPath);
-                            final long candidateRevision = svnEntry.getRevision();
-                            final long lastModified = svnEntry.getLastModified();
-                            listener.getLogger().println(
-                                    "Checking candidate branch " + candidateRootPath + "@HEAD");
-                            if (branchCriteria == null || branchCriteria.isHead(
-                                    new SCMSourceCriteria.Probe() {
-                                        @Override
-                                        public String name() {
-                                            return childPath;
-                                        }
-
-                                        @Override
-                                        public long lastModified() {
-                                            return lastModified;
-                                        }
-
-                                        @Override
-                                        public boolean exists(@NonNull String path) throws IOException {
-                                            try {
-                                                return repository.checkPath(
-                                                        SVNPathUtil.append(candidateRootPath, path),
-                                                        -1) != SVNNodeKind.NONE;
-                                            } catch (SVNException e) {
-                                                throw new IOException(e);
-                                            }
-                                        }
-                                    }, listener)) {
-                                listener.getLogger().println("Met criteria");
-                                long branchRevision = candidateRevision;
-                                if (repository.checkPath(candidateRootPath, branchRevision) == SVNNodeKind.NONE)
-                                {
-                                    listener.getLogger().println("Branch older than root folder, using HEAD");
-                                    branchRevision = -1;
-                                }
-                                SCMHead head = new SCMHead(childPath);
-                                observer.observe(head, new SCMRevisionImpl(head, branchRevision));
-                                if (!observer.isObserving()) {
-                                    return;
+                    }
+
+                    private boolean exists(SVNRepositoryView.NodeEntry node, String path) throws SVNException {
+                        List<String> segments = new ArrayList<>();
+                        for (String segment : path.split("/")) {
+                            if (segment.equals("..")) {
+                                return repository.checkPath(SVNPathUtil.append(candidateRootPath, path),
+                                        probeRevision) != SVNNodeKind.NONE;
+                            }
+                            if (!segment.isEmpty() && !segment.equals(".")) {
+                                segments.add(segment);
+                            }
+                        }
+                        // walk down the listings, each one is cached by path and revision for the other probes
+                        String nodePath = candidateRootPath;
+                        for (int i = 0; i < segments.size(); i++) {
+                            SVNRepositoryView.ChildEntry child = null;
+                            if (node.getChildren() != null) {
+                                for (SVNRepositoryView.ChildEntry entry : node.getChildren()) {
+                                    if (entry.getName().equals(segments.get(i))) {
+                                        child = entry;
+                                        break;
+                                    }
                                 }
-                            } else {
-                                listener.getLogger().println("Does not meet criteria");
                             }
-                        } else {
-                            fetch(listener, repository, repoPath, paths, childPrefix,
-                                    childRealPath, excludedPaths, branchCriteria, observer);
+                            if (child == null) {
+                                return false;
+                            }
+                            if (i == segments.size() - 1) {
+                                return true;
+                            }
+                            if (child.getType() != SVNNodeKind.DIR) {
+                                return false;
+                            }
+                            nodePath = SVNPathUtil.append(nodePath, segments.get(i));
+                            node = olderThanRoot
+                                    ? repository.getDirectory(nodePath, probeRevision, child.getRevision())
+                                    : repository.getDirectory(nodePath, probeRevision);
                         }
+                        return node.getType() != SVNNodeKind.NONE;
                     }
+                }, listener)) {
+            listener.getLogger().println("Met criteria");
+            if (olderThanRoot)
+            {
+                listener.getLogger().println("Branch older than root folder, using HEAD");
+            }
+            SCMHead head = new SCMHead(childPath);
+            // the observer may be shared by concurrent fetches, see ParallelFetchExecutor
+            synchronized (observer) {
+                if (observer.isObserving()) {
+                    observer.observe(head, new SCMRevisionImpl(head, branchRevision));
                 }
             }
+        } else {
+            listener.getLogger().println("Does not meet criteria");
         }
     }
 
     /**
-     * Copies a list and appends some more values.
+     * Replays the previous index, re-probing only the branches touched by the commits since it was taken.
      *
-     * @param list   the list.
-     * @param values the values to append.
-     * @param <T>    the type of values to append.
-     * @return the list.
+     * @return {@code false} if the changes cannot be mapped onto branches, in which case nothing was observed and
+     * a full index is needed.
      */
-    @NonNull
-    private static <T> List<T> copyAndAppend(@NonNull List<T> list, T... values) {
-        List<T> childPrefix = new ArrayList<>(list.size() + values.length);
-        childPrefix.addAll(list);
-        childPrefix.addAll(Arrays.asList(values));
-        return childPrefix;
+    private boolean fetchIncrementally(@NonNull TaskListener listener,
+                                       @NonNull SVNRepositoryView repository,
+                                       @NonNull String repoPath,
+                                       @NonNull BranchMatcher matcher,
+                                       @CheckForNull SCMSourceCriteria branchCriteria,
+                                       @NonNull SCMHeadObserver observer,
+                                       @NonNull IndexState previous,
+                                       long indexRevision) throws IOException, SVNException, InterruptedException {
+        Set<List<String>> changedBranches = new TreeSet<>(COMPARATOR);
+        if (previous.revision < indexRevision) {
+            Set<String> changedPaths;
+            try {
+                changedPaths = repository.getChangedPaths(previous.revision + 1, indexRevision);
+            } catch (SVNException e) {
+                LOGGER.log(Level.FINE, "Could not retrieve the log of " + remoteBase + ", falling back to full index", e);
+                return false;
+            }
+            String base = StringUtils.removeEnd(repoPath, "/");
+            for (String changedPath : changedPaths) {
+                if (!changedPath.startsWith(base + "/")) {
+                    // the base itself changed, e.g. through a property change
+                    return false;
+                }
+                List<String> segments = Arrays.asList(changedPath.substring(base.length() + 1).split("/"));
+                BranchMatcher.State state = matcher.root();
+                for (int i = 0; i < segments.size() && state != null; i++) {
+                    state = state.child(segments.get(i));
+                    if (state != null && state.isBranch()) {
+                        changedBranches.add(new ArrayList<>(segments.subList(0, i + 1)));
+                    }
+                }
+                if (state != null && state.hasChildren()) {
+                    // a directory above the branches was added, removed or changed
+                    return false;
+                }
+            }
+        }
+        listener.getLogger().println("Checking " + changedBranches.size() + " branches changed since revision "
+                + previous.revision);
+        SortedMap<String, List<List<String>>> byParent = new TreeMap<>();
+        for (List<String> branch : changedBranches) {
+            String parent = StringUtils.join(branch.subList(0, branch.size() - 1), '/');
+            byParent.computeIfAbsent(parent, k -> new ArrayList<>()).add(branch);
+        }
+        for (Map.Entry<String, List<List<String>>> entry : byParent.entrySet()) {
+            SVNRepositoryView.NodeEntry node = repository.getNode(SVNPathUtil.append(repoPath, entry.getKey()), -1);
+            if (!SVNNodeKind.DIR.equals(node.getType()) || node.getChildren() == null) {
+                continue;
+            }
+            for (List<String> branch : entry.getValue()) {
+                String name = branch.get(branch.size() - 1);
+                for (SVNRepositoryView.ChildEntry svnEntry : node.getChildren()) {
+                    if (svnEntry.getType() == SVNNodeKind.DIR && svnEntry.getName().equals(name)) {
+                        if (!isObserving(observer)) {
+                            return true;
+                        }
+                        fetchCandidate(listener, repository, repoPath, branch, svnEntry, branchCriteria, observer);
+                        break;
+                    }
+                }
+            }
+        }
+        replay(previous, changedBranches, observer);
+        return true;
     }
 
     /**
-     * Groups a set of path segments based on a supplied prefix.
+     * Passes the heads of a previous index on to an observer, most recently changed first.
      *
-     * @param pathSegments the input path segments.
-     * @param prefix       the prefix to group on.
-     * @return a map, all keys will {@link #startsWith(java.util.List, java.util.List)} the input prefix and be longer
-     *         than the input prefix, all values will {@link #startsWith(java.util.List,
-     *         java.util.List)} their corresponding key.
+     * @param previous the previous index.
+     * @param skipped  the heads not to pass on.
+     * @param observer the observer.
      */
-    @NonNull
-    static SortedMap<List<String>, SortedSet<List<String>>> groupPaths(@NonNull SortedSet<List<String>> pathSegments,
-                                                                       @NonNull List<String> prefix) {
-        // ensure pre-condition is valid and ensure we are using a copy
-        pathSegments = filterPaths(pathSegments, prefix);
-
-        SortedMap<List<String>, SortedSet<List<String>>> result =
-                new TreeMap<>(COMPARATOR);
-        while (!pathSegments.isEmpty()) {
-            List<String> longestPrefix = null;
-            int longestIndex = -1;
-            for (List<String> pathSegment : pathSegments) {
-                if (longestPrefix == null) {
-                    longestPrefix = pathSegment;
-                    longestIndex = indexOfNextWildcard(pathSegment, prefix.size());
-
-                } else {
-                    int index = indexOfNextWildcard(pathSegment, prefix.size());
-                    if (index > longestIndex) {
-                        longestPrefix = pathSegment;
-                        longestIndex = index;
-                    }
+    private static void replay(@NonNull IndexState previous, @NonNull Set<List<String>> skipped,
+                               @NonNull SCMHeadObserver observer) throws IOException, InterruptedException {
+        List<Map.Entry<String, Long>> unchanged = new ArrayList<>(previous.heads.entrySet());
+        unchanged.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        for (Map.Entry<String, Long> entry : unchanged) {
+            if (skipped.contains(Arrays.asList(entry.getKey().split("/")))) {
+                continue;
+            }
+            SCMHead head = new SCMHead(entry.getKey());
+            synchronized (observer) {
+                if (!observer.isObserving()) {
+                    return;
                 }
+                observer.observe(head, new SCMRevisionImpl(head, entry.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Takes a fresh index in the background, unless one is already being taken, and lets the owner know if the
+     * heads changed so that it indexes again, this time from the fresh index.
+     */
+    private void refreshInBackground(@CheckForNull SCMSourceCriteria criteria) {
+        synchronized (this) {
+            if (refreshing) {
+                return;
             }
-            assert longestPrefix != null;
-            longestPrefix = new ArrayList<>(longestPrefix.subList(0, longestIndex));
-            SortedSet<List<String>> group = filterPaths(pathSegments, longestPrefix);
-            result.put(longestPrefix, group);
-            pathSegments.removeAll(group);
+            refreshing = true;
         }
-        String optimization;
-        while (null != (optimization = getOptimizationPoint(result.keySet(), prefix.size()))) {
-            List<String> optimizedPrefix = copyAndAppend(prefix, optimization);
-            SortedSet<List<String>> optimizedGroup = new TreeSet<>(COMPARATOR);
-            for (Iterator<Map.Entry<List<String>, SortedSet<List<String>>>> iterator = result.entrySet().iterator();
-                 iterator.hasNext(); ) {
-                Map.Entry<List<String>, SortedSet<List<String>>> entry = iterator.next();
-                if (startsWith(entry.getKey(), optimizedPrefix)) {
-                    iterator.remove();
-                    optimizedGroup.addAll(entry.getValue());
+        Timer.get().submit(() -> {
+            try {
+                IndexState before = getIndexState(criteria);
+                index(criteria, SCMHeadObserver.collect(), new LogTaskListener(LOGGER, Level.FINE));
+                IndexState after = getIndexState(criteria);
+                SCMSourceOwner owner = getOwner();
+                if (owner != null && after != null && after != before
+                        && (before == null || !after.heads.equals(before.heads))) {
+                    owner.onSCMSourceUpdated(SubversionSCMSource.this);
+                }
+            } catch (IOException | InterruptedException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Could not refresh the index of " + remoteBase, e);
+            } finally {
+                synchronized (SubversionSCMSource.this) {
+                    refreshing = false;
                 }
             }
-            result.put(optimizedPrefix, optimizedGroup);
+        });
+    }
+
+    @CheckForNull
+    private synchronized IndexState getIndexState(@CheckForNull SCMSourceCriteria criteria) {
+        if (indexState == null || !indexState.isApplicable(includes, excludes, criteria)) {
+            return null;
+        }
+        return indexState;
+    }
+
+    private synchronized void setIndexState(@NonNull IndexState indexState) {
+        this.indexState = indexState;
+    }
+
+    private static boolean isObserving(@NonNull SCMHeadObserver observer) {
+        synchronized (observer) {
+            return observer.isObserving();
         }
-        return result;
     }
 
     /**
-     * Returns the string that has multiple matches and can therefore be used to optimize the set of prefixes.
-     *
-     * @param newPrefixes   the proposed set of prefixes.
-     * @param oldPrefixSize the length of the old prefix.
-     * @return either a string that when appended to the old prefix will give a prefix with multiple matches in the
-     *         supplied set of new prefixes or {@code null} if there is no such string.
+     * The heads found by a complete index, and what they were found with.
      */
-    @CheckForNull
-    static String getOptimizationPoint(@NonNull Set<List<String>> newPrefixes, int oldPrefixSize) {
-        Set<String> set = new HashSet<>();
-        for (List<String> p : newPrefixes) {
-            if (p.size() <= oldPrefixSize) {
-                continue;
+    private static final class IndexState {
+        private final long revision;
+        /**
+         * When the index started.
+         */
+        private final long timestamp;
+        private final String includes;
+        private final String excludes;
+        /**
+         * The {@linkplain #fingerprint fingerprint} of the criteria, {@code null} if they could not be told apart
+         * from others.
+         */
+        @CheckForNull
+        private final String criteria;
+        private final Map<String, Long> heads;
+
+        IndexState(long revision, long timestamp, String includes, String excludes,
+                   @CheckForNull SCMSourceCriteria criteria, Map<String, Long> heads) {
+            this.revision = revision;
+            this.timestamp = timestamp;
+            this.includes = includes;
+            this.excludes = excludes;
+            this.criteria = fingerprint(criteria);
+            this.heads = heads;
+        }
+
+        boolean isApplicable(String includes, String excludes, @CheckForNull SCMSourceCriteria criteria) {
+            return StringUtils.equals(this.includes, includes)
+                    && StringUtils.equals(this.excludes, excludes)
+                    && this.criteria != null && this.criteria.equals(fingerprint(criteria));
+        }
+
+        /**
+         * Identifies the configuration of some criteria, which rarely implement {@code equals}, by their class and
+         * serialized form, so that criteria of the same class configured differently, such as with another script
+         * path, do not reuse the heads the others found.
+         *
+         * @return the fingerprint, or {@code null} if the criteria cannot be serialized.
+         */
+        @CheckForNull
+        static String fingerprint(@CheckForNull SCMSourceCriteria criteria) {
+            if (criteria == null) {
+                return "";
             }
-            String value = p.get(oldPrefixSize);
-            if (set.contains(value)) {
-                return value;
+            try {
+                return criteria.getClass().getName() + ':' + Util.getDigestOf(Jenkins.XSTREAM2.toXML(criteria));
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.FINE, "Could not fingerprint " + criteria + ", not reusing indexes taken with it", e);
+                return null;
             }
-            set.add(value);
         }
-        return null;
     }
 
     /**
-     * Returns the index of the next wildcard segment on or after the specified start index.
-     *
-     * @param pathSegment the path segments.
-     * @param startIndex  the first index to check.
-     * @return the index with a wildcard or {@code -1} if none exist.
+     * Remembers the revisions of the heads passed on to another observer.
      */
-    static int indexOfNextWildcard(@NonNull List<String> pathSegment, int startIndex) {
-        int index = startIndex;
-        ListIterator<String> i = pathSegment.listIterator(index);
-        while (i.hasNext()) {
-            String segment = i.next();
-            if (segment.indexOf('*') != -1 || segment.indexOf('?') != -1) {
-                break;
-            }
-            index++;
+    private static final class RecordingObserver extends SCMHeadObserver {
+        private final SCMHeadObserver delegate;
+        private final Map<String, Long> heads = new HashMap<>();
+
+        RecordingObserver(@NonNull SCMHeadObserver delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void observe(@NonNull SCMHead head, @NonNull SCMRevision revision) throws IOException, InterruptedException {
+            heads.put(head.getName(), ((SCMRevisionImpl) revision).getRevision());
+            delegate.observe(head, revision);
+        }
+
+        @Override
+        public boolean isObserving() {
+            return delegate.isObserving();
+        }
+
+        @CheckForNull
+        @Override
+        public Set<SCMHead> getIncludes() {
+            return delegate.getIncludes();
+        }
+
+        synchronized Map<String, Long> getHeads() {
+            return new HashMap<>(heads);
         }
-        return index;
     }
 
     /**
-     * Returns {@code true} if and only if the value starts with the supplied prefix.
-     *
-     * @param value  the value.
-     * @param prefix the candidate prefix.
-     * @return {@code true} if and only if the value starts with the supplied prefix.
+     * A unit of work of {@link #fetch}, run against a session.
      */
-    static boolean startsWith(@NonNull List<String> value, @NonNull List<String> prefix) {
-        if (value.size() < prefix.size()) {
-            return false;
+    interface FetchTask {
+        void run(@NonNull SVNRepositoryView session) throws IOException, SVNException, InterruptedException;
+    }
+
+    /**
+     * Decides where and when the {@link FetchTask}s of {@link #fetch} run.
+     */
+    interface FetchExecutor {
+        void execute(@NonNull FetchTask task) throws IOException, SVNException, InterruptedException;
+    }
+
+    /**
+     * Runs {@link FetchTask}s concurrently over a small pool of sessions that share the cache of the original view.
+     */
+    static final class ParallelFetchExecutor implements FetchExecutor, AutoCloseable {
+        private final ExecutorService executor;
+        private final CompletionService<Void> completion;
+        private final BlockingQueue<SVNRepositoryView> sessions;
+        private final List<SVNRepositoryView> forks = new ArrayList<>();
+        private final AtomicInteger pending = new AtomicInteger();
+
+        ParallelFetchExecutor(@NonNull SVNRepositoryView repository, int parallelism) throws SVNException, IOException {
+            sessions = new ArrayBlockingQueue<>(parallelism);
+            sessions.add(repository);
+            try {
+                for (int i = 1; i < parallelism; i++) {
+                    SVNRepositoryView fork = repository.fork();
+                    forks.add(fork);
+                    sessions.add(fork);
+                }
+            } catch (SVNException | IOException e) {
+                closeForks();
+                throw e;
+            }
+            executor = Executors.newFixedThreadPool(parallelism,
+                    new NamingThreadFactory(new DaemonThreadFactory(), SubversionSCMSource.class.getSimpleName() + ".fetch"));
+            completion = new ExecutorCompletionService<>(executor);
         }
-        ListIterator<String> i1 = value.listIterator();
-        ListIterator<String> i2 = prefix.listIterator();
-        while (i1.hasNext() && i2.hasNext()) {
-            if (!i1.next().equals(i2.next())) {
-                return false;
+
+        @Override
+        public void execute(@NonNull FetchTask task) {
+            pending.incrementAndGet();
+            completion.submit(() -> {
+                SVNRepositoryView session = sessions.take();
+                try {
+                    task.run(session);
+                } finally {
+                    sessions.put(session);
+                }
+                return null;
+            });
+        }
+
+        /**
+         * Waits for all the tasks, including the ones they submit in turn, to complete.
+         */
+        void await() throws IOException, SVNException, InterruptedException {
+            while (pending.get() > 0) {
+                Future<Void> future = completion.take();
+                pending.decrementAndGet();
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                    if (cause instanceof SVNException) {
+                        throw (SVNException) cause;
+                    }
+                    if (cause instanceof InterruptedException) {
+                        throw (InterruptedException) cause;
+                    }
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new IOException(cause);
+                }
             }
         }
-        return true;
+
+        private void closeForks() {
+            for (SVNRepositoryView fork : forks) {
+                fork.release();
+            }
+        }
+
+        @Override
+        public void close() {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            closeForks();
+        }
+    }
+
+    /**
+     * Copies a list and appends some more values.
+     *
+     * @param list   the list.
+     * @param values the values to append.
+     * @param <T>    the type of values to append.
+     * @return the list.
+     */
+    @NonNull
+    private static <T> List<T> copyAndAppend(@NonNull List<T> list, T... values) {
+        List<T> childPrefix = new ArrayList<>(list.size() + values.length);
+        childPrefix.addAll(list);
+        childPrefix.addAll(Arrays.asList(values));
+        return childPrefix;
     }
 
     /**
      * Returns {@code true} if and only if the value starts with the supplied prefix.
      *
-     * @param value          the value.
-     * @param wildcardPrefix the candidate prefix.
+     * @param value  the value.
+     * @param prefix the candidate prefix.
      * @return {@code true} if and only if the value starts with the supplied prefix.
      */
-    static boolean wildcardStartsWith(@NonNull List<String> value, @NonNull List<String> wildcardPrefix) {
-        if (value.size() < wildcardPrefix.size()) {
+    static boolean startsWith(@NonNull List<String> value, @NonNull List<String> prefix) {
+        if (value.size() < prefix.size()) {
             return false;
         }
         ListIterator<String> i1 = value.listIterator();
-        ListIterator<String> i2 = wildcardPrefix.listIterator();
+        ListIterator<String> i2 = prefix.listIterator();
         while (i1.hasNext() && i2.hasNext()) {
-            if (!isMatch(i1.next(), i2.next())) {
+            if (!i1.next().equals(i2.next())) {
                 return false;
             }
         }
         return true;
     }
 
-    /**
-     * Returns {@code true} if and only if the value starts with any of the supplied prefixes.
-     *
-     * @param value            the value.
-     * @param wildcardPrefixes the candidate prefixes.
-     * @return {@code true} if and only if the value starts with any of the supplied prefixes.
-     */
-    static boolean wildcardStartsWith(@NonNull List<String> value, @NonNull Collection<List<String>> wildcardPrefixes) {
-        for (List<String> wildcardPrefix : wildcardPrefixes) {
-            if (wildcardStartsWith(value, wildcardPrefix)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     /**
      * Filters the set of path segments, retaining only those that start with the supplied prefix.
      *
@@ -1084,6 +1509,7 @@ public class SubversionSCMSource extends SCMSource {
             LOGGER.log(Level.INFO, "Received post-commit hook from {0} for revision {1} on paths {2}",
                     new Object[]{uuid, revision, paths});
             boolean notified = false;
+            SubversionHookMetrics metrics = SubversionHookMetrics.get();
             // run in high privilege to see all the projects anonymous users don't see.
             // this is safe because when we actually schedule a build, it's a build that can
             // happen at some random time anyway.
@@ -1093,10 +1519,16 @@ public class SubversionSCMSource extends SCMSource {
                 for (SCMSourceOwner owner : SCMSourceOwners.all()) {
                     for (SCMSource source : owner.getSCMSources()) {
                         if (source instanceof SubversionSCMSource) {
-                            if (id.equals(((SubversionSCMSource) source).getUuid())) {
+                            metrics.sourceExamined();
+                            String sourceUuid = ((SubversionSCMSource) source).getUuid();
+                            if (sourceUuid == null) {
+                                metrics.sourceSkipped();
+                            } else if (id.equals(sourceUuid)) {
                                 LOGGER.log(Level.INFO, "SCM changes detected relevant to {0}. Notifying update",
                                         owner.getFullDisplayName());
+                                long matched = metrics.sourceMatched();
                                 owner.onSCMSourceUpdated(source);
+                                metrics.triggered(matched);
                                 notified = true;
                             }
                         }
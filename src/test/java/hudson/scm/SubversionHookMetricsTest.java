@@ -0,0 +1,46 @@
+package hudson.scm;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SubversionHookMetricsTest {
+
+    @Test
+    void histogramKeepsOnlyTheMostRecentSamples() {
+        SubversionHookMetrics.Histogram histogram = new SubversionHookMetrics.Histogram(4);
+        for (long millis = 1; millis <= 6; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis * 100));
+        }
+
+        assertEquals(6, histogram.getCount());
+        assertEquals(600.0, histogram.getMax());
+        assertEquals(450.0, histogram.getMean());
+        assertEquals(400.0, histogram.getP50());
+        assertEquals(600.0, histogram.getP99());
+    }
+
+    @Test
+    void histogramBuckets() {
+        SubversionHookMetrics.Histogram histogram = new SubversionHookMetrics.Histogram(16);
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(500));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(3));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(70));
+        histogram.record(TimeUnit.MINUTES.toNanos(2));
+
+        assertArrayEquals(new long[] {1, 1, 0, 0, 1, 0, 0, 0, 0, 0, 1}, histogram.getBuckets());
+    }
+
+    @Test
+    void emptyHistogram() {
+        SubversionHookMetrics.Histogram histogram = new SubversionHookMetrics.Histogram(16);
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0.0, histogram.getMean());
+        assertEquals(0.0, histogram.getP95());
+        assertEquals(0.0, histogram.getMax());
+    }
+}
@@ -1,16 +1,37 @@
 package hudson.scm;
 
 import hudson.model.AbstractProject;
+import hudson.model.Action;
+import hudson.model.FreeStyleProject;
+import hudson.model.Job;
 import hudson.scm.SubversionRepositoryStatus.JobProvider;
+import hudson.scm.SubversionSCM.ModuleLocation;
+import hudson.scm.SubversionSCM.SvnInfo;
+import hudson.triggers.SCMTrigger;
+import jakarta.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.Test;
 import org.jvnet.hudson.test.Issue;
+import org.kohsuke.stapler.StaplerRequest2;
+import org.kohsuke.stapler.StaplerResponse2;
+import org.mockito.ArgumentCaptor;
+import org.tmatesoft.svn.core.SVNURL;
 
+import java.io.BufferedReader;
+import java.io.StringReader;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -87,4 +108,99 @@ class SubversionRepositoryStatusTest {
         // Expect
         assertFalse(containsAffectedPath, "affected path should be false");
     }
+
+    @Test
+    void testGetHighestRelevantRevision_picksHighestRevisionTouchingConfiguredRepo() {
+        // Given
+        SubversionRepositoryStatus.JobTriggerListenerImpl listener = new SubversionRepositoryStatus.JobTriggerListenerImpl();
+        String configuredRepoFullPath = "https://svn.company.com/project/trunk";
+        String rootRepoPath = "https://svn.company.com/project";
+
+        SortedMap<Long, Set<String>> changes = new TreeMap<>();
+        changes.put(10L, Collections.singleton("trunk/src/Test.java"));
+        changes.put(11L, Collections.singleton("trunk/pom.xml"));
+        changes.put(12L, Collections.singleton("tags/1.0/pom.xml"));
+
+        // When
+        Long revision = listener.getHighestRelevantRevision(configuredRepoFullPath, rootRepoPath, changes);
+
+        // Expect
+        assertEquals(Long.valueOf(11L), revision, "highest relevant revision");
+    }
+
+    @Test
+    void testGetHighestRelevantRevision_noRevisionTouchesConfiguredRepo() {
+        // Given
+        SubversionRepositoryStatus.JobTriggerListenerImpl listener = new SubversionRepositoryStatus.JobTriggerListenerImpl();
+        String configuredRepoFullPath = "https://svn.company.com/project/trunk";
+        String rootRepoPath = "https://svn.company.com/project";
+
+        SortedMap<Long, Set<String>> changes = new TreeMap<>();
+        changes.put(12L, Collections.singleton("tags/1.0/pom.xml"));
+
+        // When
+        Long revision = listener.getHighestRelevantRevision(configuredRepoFullPath, rootRepoPath, changes);
+
+        // Expect
+        assertNull(revision, "no relevant revision");
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    @Test
+    void shouldScheduleHighestRevisionAcrossAllModuleLocations() throws Exception {
+        SubversionRepositoryStatus.JobTriggerListenerImpl listener = new SubversionRepositoryStatus.JobTriggerListenerImpl();
+        UUID uuid = UUID.randomUUID();
+        SVNURL root = SVNURL.parseURIEncoded("https://svn.company.com/project");
+
+        // GIVEN: a job with two module locations in the same repository
+        SubversionSCM scm = mock(SubversionSCM.class);
+        ModuleLocation trunk = location(root, "trunk", uuid);
+        ModuleLocation branch = location(root, "branches/b", uuid);
+        FreeStyleProject project = mock(FreeStyleProject.class);
+        SCMTrigger trigger = mock(SCMTrigger.class);
+        when(project.getSCMs()).thenReturn((List) Collections.singletonList(scm));
+        when(project.getSCMTrigger()).thenReturn(trigger);
+        when(scm.getProjectLocations(project)).thenReturn(new ModuleLocation[] {trunk, branch});
+        listener.setJobProvider(() -> Collections.singletonList(project));
+
+        // WHEN: the first location is touched by r10 and the second one by r12
+        SortedMap<Long, Set<String>> changes = new TreeMap<>();
+        changes.put(10L, Collections.singleton("trunk/pom.xml"));
+        changes.put(12L, Collections.singleton("branches/b/pom.xml"));
+        changes.put(13L, Collections.singleton("tags/1.0/pom.xml"));
+        listener.onNotify(uuid, changes);
+
+        // EXPECT: the job is polled once, with r12 for both locations
+        ArgumentCaptor<Action[]> actions = ArgumentCaptor.forClass(Action[].class);
+        verify(trigger).run(actions.capture());
+        List<SvnInfo> infos = ((RevisionParameterAction) actions.getValue()[0]).getRevisions();
+        assertEquals(2, infos.size());
+        for (SvnInfo info : infos) {
+            assertEquals(12L, info.revision, info.url);
+        }
+    }
+
+    @Test
+    void shouldRejectMalformedBatch() throws Exception {
+        SubversionRepositoryStatus status = new SubversionRepositoryStatus(UUID.randomUUID());
+        for (String payload : new String[] {"12 x", "12", "x U   trunk/a", "12 svnlook changed --revision 12 /repo",
+                "12 U   trunk/a\n13 U"}) {
+            StaplerRequest2 req = mock(StaplerRequest2.class);
+            when(req.getReader()).thenReturn(new BufferedReader(new StringReader(payload)));
+            StaplerResponse2 rsp = mock(StaplerResponse2.class);
+            status.doNotifyCommits(req, rsp);
+            verify(rsp).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+            verify(rsp, never()).setStatus(HttpServletResponse.SC_OK);
+        }
+    }
+
+    private static ModuleLocation location(SVNURL root, String path, UUID uuid) throws Exception {
+        ModuleLocation location = mock(ModuleLocation.class);
+        SVNURL url = root.appendPath(path, false);
+        when(location.getURL()).thenReturn(url.toString());
+        when(location.getSVNURL()).thenReturn(url);
+        when(location.getUUID(any(Job.class), any(SCM.class))).thenReturn(uuid);
+        when(location.getRepositoryRoot(any(Job.class), any(SCM.class))).thenReturn(root);
+        return location;
+    }
 }
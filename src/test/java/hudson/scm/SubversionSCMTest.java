@@ -57,6 +57,8 @@ import hudson.scm.ChangeLogSet.Entry;
 import hudson.scm.SubversionSCM.ModuleLocation;
 import hudson.scm.browsers.Sventon;
 import hudson.scm.subversion.CheckoutUpdater;
+import hudson.scm.subversion.ExportUpdater;
+import hudson.scm.subversion.ReferenceCacheUpdater;
 import hudson.scm.subversion.UpdateUpdater;
 import hudson.scm.subversion.UpdateWithCleanUpdater;
 import hudson.scm.subversion.UpdateWithRevertUpdater;
@@ -99,6 +101,7 @@ import org.tmatesoft.svn.core.SVNCancelException;
 import org.tmatesoft.svn.core.SVNDepth;
 import org.tmatesoft.svn.core.SVNErrorCode;
 import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNProperty;
 import org.tmatesoft.svn.core.SVNPropertyValue;
 import org.tmatesoft.svn.core.SVNURL;
 import org.tmatesoft.svn.core.auth.ISVNAuthenticationManager;
@@ -121,6 +124,7 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -129,6 +133,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -734,6 +739,30 @@ class SubversionSCMTest extends AbstractSubversionTest {
         multipleRepositories();
     }
 
+    @Test
+    void multipleRepositoriesInParallel() throws Exception {
+        int parallelism = SubversionSCM.CHECKOUT_PARALLELISM;
+        SubversionSCM.CHECKOUT_PARALLELISM = 2;
+        try {
+            FreeStyleProject p = r.createFreeStyleProject();
+            String svnBase = "file://" + new CopyExisting(getClass().getResource("/svn-repo.zip")).allocate().toURI().toURL().getPath();
+            SubversionSCM scm = new SubversionSCM(
+                    Arrays.asList(new ModuleLocation(svnBase + "trunk", "trunk"), new ModuleLocation(svnBase + "branches", "branches")),
+                    new UpdateUpdater(), null, null, null, null, null, null);
+            p.setScm(scm);
+            FreeStyleBuild b = r.buildAndAssertSuccess(p);
+            // the output of each location is kept together, in location order
+            String log = JenkinsRule.getLog(b);
+            int trunk = log.indexOf("Cleaning local Directory trunk");
+            int branches = log.indexOf("Cleaning local Directory branches");
+            assertTrue(trunk >= 0 && branches > trunk, log);
+            assertTrue(b.getWorkspace().child("trunk").exists());
+            assertTrue(b.getWorkspace().child("branches").exists());
+        } finally {
+            SubversionSCM.CHECKOUT_PARALLELISM = parallelism;
+        }
+    }
+
     @Test
     void configRoundtrip() throws Exception {
         FreeStyleProject p = r.createFreeStyleProject();
@@ -1562,6 +1591,67 @@ class SubversionSCMTest extends AbstractSubversionTest {
         assertEquals(expected, ((SubversionSCM) job.getScm()).getWorkspaceUpdater().getClass());
     }
 
+    @Test
+    void referenceCacheUpdater() throws Exception {
+        String cacheDir = ReferenceCacheUpdater.class.getName() + ".cacheDir";
+        System.setProperty(cacheDir, newFolder(tmp, "reference-cache").getAbsolutePath());
+        try {
+            String svnBase = "file://" + new CopyExisting(getClass().getResource("/svn-repo.zip")).allocate().toURI().toURL().getPath();
+            FreeStyleProject p1 = r.createFreeStyleProject();
+            SubversionSCM scm = new SubversionSCM(svnBase + "trunk");
+            scm.setWorkspaceUpdater(new ReferenceCacheUpdater());
+            p1.setScm(scm);
+            FreeStyleBuild b = r.buildAndAssertSuccess(p1);
+            r.assertLogContains("Checking out reference working copy", b);
+
+            // a fresh workspace elsewhere is copied from the reference
+            FreeStyleProject p2 = r.createFreeStyleProject();
+            scm = new SubversionSCM(svnBase + "trunk");
+            scm.setWorkspaceUpdater(new ReferenceCacheUpdater());
+            p2.setScm(scm);
+            b = r.buildAndAssertSuccess(p2);
+            r.assertLogContains("Updating reference working copy", b);
+            r.assertLogContains("Copying reference working copy", b);
+            assertEquals(p1.getLastBuild().getWorkspace().child("trunk").list().size(),
+                    b.getWorkspace().child("trunk").list().size());
+
+            // and then updated in place
+            b = r.buildAndAssertSuccess(p2);
+            r.assertLogNotContains("Copying reference working copy", b);
+        } finally {
+            System.clearProperty(cacheDir);
+        }
+    }
+
+    @Test
+    void referenceCacheUpdaterPrunesUnusedReferences() throws Exception {
+        String cacheDir = ReferenceCacheUpdater.class.getName() + ".cacheDir";
+        File cache = newFolder(tmp, "reference-cache");
+        System.setProperty(cacheDir, cache.getAbsolutePath());
+        try {
+            File unused = new File(cache, "unused");
+            assertTrue(new File(unused, ".svn").mkdirs());
+            File unusedLock = new File(cache, "unused.lock");
+            assertTrue(unusedLock.createNewFile());
+            assertTrue(unusedLock.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(31)));
+
+            String svnBase = "file://" + new CopyExisting(getClass().getResource("/svn-repo.zip")).allocate().toURI().toURL().getPath();
+            FreeStyleProject p = r.createFreeStyleProject();
+            SubversionSCM scm = new SubversionSCM(svnBase + "trunk");
+            scm.setWorkspaceUpdater(new ReferenceCacheUpdater());
+            p.setScm(scm);
+            FreeStyleBuild b = r.buildAndAssertSuccess(p);
+            r.assertLogContains("Deleting unused reference working copy " + unused, b);
+            assertFalse(unused.exists());
+            // the reference just used is kept
+            File[] references = cache.listFiles(f -> f.isDirectory());
+            assertNotNull(references);
+            assertEquals(1, references.length);
+        } finally {
+            System.clearProperty(cacheDir);
+        }
+    }
+
     @Test
     void updateWithCleanUpdater() throws Exception {
         // this contains an empty "a" file and svn:ignore that ignores b
@@ -1840,6 +1930,117 @@ class SubversionSCMTest extends AbstractSubversionTest {
         assertFalse(p.poll(StreamTaskListener.fromStdout()).hasChanges());
     }
 
+    @Test
+    void exportUpdater() throws Exception {
+        // trunk has svn:externals="-r 1 ^/vendor vendor" (pinned)
+        File repo = new CopyExisting(getClass().getResource("JENKINS-16533.zip")).allocate();
+        String url = "file://" + repo.toURI().toURL().getPath();
+        SubversionSCM scm = new SubversionSCM(Arrays.asList(new ModuleLocation(url + "trunk", "trunk")),
+                new ExportUpdater(), null, null, null, null, null, null);
+
+        FreeStyleProject p = r.createFreeStyleProject();
+        p.setScm(scm);
+        FreeStyleBuild b = r.buildAndAssertSuccess(p);
+        r.assertLogContains("Exporting " + url + "trunk", b);
+        FilePath ws = b.getWorkspace();
+        assertFalse(ws.child("trunk").child(".svn").exists());
+        assertTrue(ws.child("trunk").child("vendor").exists());
+        assertFalse(ws.child("trunk").child("vendor").child(".svn").exists());
+
+        // revisions and externals are recorded without a working copy to read them from
+        String revisions = Files.readString(SubversionSCM.getRevisionFile(b).toPath());
+        assertTrue(revisions.contains(url + "trunk/"), revisions);
+        assertTrue(revisions.contains(url + "vendor/1::p"), revisions);
+        assertFalse(p.poll(StreamTaskListener.fromStdout()).hasChanges());
+
+        b = r.buildAndAssertSuccess(p);
+        r.assertLogContains("Cleaning local Directory trunk", b);
+    }
+
+    @Test
+    void concurrentExternals() throws Exception {
+        int parallelism = SubversionSCM.EXTERNALS_PARALLELISM;
+        SubversionSCM.EXTERNALS_PARALLELISM = 2;
+        try {
+            // trunk has svn:externals="-r 1 ^/vendor vendor" (pinned)
+            File repo = new CopyExisting(getClass().getResource("JENKINS-16533.zip")).allocate();
+            String url = "file://" + repo.toURI().toURL().getPath();
+            FreeStyleProject p = r.createFreeStyleProject();
+            p.setScm(new SubversionSCM(Arrays.asList(new ModuleLocation(url + "trunk", "trunk")),
+                    new CheckoutUpdater(), null, null, null, null, null, null));
+
+            // checked out twice, each time recording the external the same way
+            for (int i = 0; i < 2; i++) {
+                FreeStyleBuild b = r.buildAndAssertSuccess(p);
+                r.assertLogContains("Got one external: vendor", b);
+                assertTrue(b.getWorkspace().child("trunk").child("vendor").child(".svn").exists());
+                String revisions = Files.readString(SubversionSCM.getRevisionFile(b).toPath());
+                assertTrue(revisions.contains(url + "vendor/1::p"), revisions);
+            }
+            assertFalse(p.poll(StreamTaskListener.fromStdout()).hasChanges());
+
+            // an external no longer defined is gone with the rest of the previous check out
+            removeExternals(SVNURL.parseURIEncoded(url + "trunk"));
+            FreeStyleBuild b = r.buildAndAssertSuccess(p);
+            r.assertLogNotContains("Got one external", b);
+            assertFalse(b.getWorkspace().child("trunk").child("vendor").exists());
+            String revisions = Files.readString(SubversionSCM.getRevisionFile(b).toPath());
+            assertFalse(revisions.contains(url + "vendor"), revisions);
+        } finally {
+            SubversionSCM.EXTERNALS_PARALLELISM = parallelism;
+        }
+    }
+
+    /**
+     * Externals of a working copy that later builds update are left to Subversion, which records them in it.
+     */
+    @Test
+    void concurrentExternalsNotUpdated() throws Exception {
+        int parallelism = SubversionSCM.EXTERNALS_PARALLELISM;
+        SubversionSCM.EXTERNALS_PARALLELISM = 2;
+        try {
+            // trunk has svn:externals="-r 1 ^/vendor vendor" (pinned)
+            File repo = new CopyExisting(getClass().getResource("JENKINS-16533.zip")).allocate();
+            String url = "file://" + repo.toURI().toURL().getPath();
+            FreeStyleProject p = r.createFreeStyleProject();
+            SubversionSCM scm = new SubversionSCM(Arrays.asList(new ModuleLocation(url + "trunk", "trunk")),
+                    new UpdateUpdater(), null, null, null, null, null, null);
+            p.setScm(scm);
+
+            // checked out, then updated
+            for (int i = 0; i < 2; i++) {
+                FreeStyleBuild b = r.buildAndAssertSuccess(p);
+                r.assertLogContains("Got one external: vendor", b);
+                assertTrue(b.getWorkspace().child("trunk").child("vendor").child(".svn").exists());
+                String revisions = Files.readString(SubversionSCM.getRevisionFile(b).toPath());
+                assertTrue(revisions.contains(url + "vendor/1::p"), revisions);
+            }
+
+            // the external is known to the working copy, so it is not cleaned up as unversioned
+            scm.setWorkspaceUpdater(new UpdateWithCleanUpdater());
+            FreeStyleBuild b = r.buildAndAssertSuccess(p);
+            r.assertLogContains("Cleaning up", b);
+            r.assertLogNotContains("Deleting ", b);
+            assertTrue(b.getWorkspace().child("trunk").child("vendor").child(".svn").exists());
+            assertFalse(p.poll(StreamTaskListener.fromStdout()).hasChanges());
+
+            // nor is it left behind once it is no longer defined
+            removeExternals(SVNURL.parseURIEncoded(url + "trunk"));
+            b = r.buildAndAssertSuccess(p);
+            assertFalse(b.getWorkspace().child("trunk").child("vendor").exists());
+            String revisions = Files.readString(SubversionSCM.getRevisionFile(b).toPath());
+            assertFalse(revisions.contains(url + "vendor"), revisions);
+        } finally {
+            SubversionSCM.EXTERNALS_PARALLELISM = parallelism;
+        }
+    }
+
+    private static void removeExternals(SVNURL url) throws Exception {
+        SvnClientManager svnm = SubversionSCM.createClientManager((AbstractProject) null);
+        svnm.getWCClient().doSetProperty(url, SVNProperty.EXTERNALS, null, SVNRevision.UNDEFINED,
+                "removed externals", null, false, null);
+    }
+
     @Issue("JENKINS-20165")
     @Test
     void pollingExternalsForFileSvn16() throws Exception {
@@ -1901,6 +2102,32 @@ class SubversionSCMTest extends AbstractSubversionTest {
         }
     }
 
+    @Test
+    void hookMetricsRequireAdminister() throws Exception {
+        assertAdministersOnly("subversion-hooks/");
+    }
+
+    @Test
+    void cacheMetricsRequireAdminister() throws Exception {
+        assertAdministersOnly("subversion-cache/");
+    }
+
+    private void assertAdministersOnly(String url) throws Exception {
+        r.jenkins.setSecurityRealm(r.createDummySecurityRealm());
+        r.jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy()
+                .grant(Jenkins.READ).everywhere().to("reader")
+                .grant(Jenkins.ADMINISTER).everywhere().to("admin"));
+
+        try (JenkinsRule.WebClient wc = r.createWebClient().login("reader")) {
+            wc.assertFails(url, 403);
+            wc.assertFails(url + "api/json", 403);
+        }
+        try (JenkinsRule.WebClient wc = r.createWebClient().login("admin")) {
+            wc.goTo(url);
+            wc.goTo(url + "api/json", "application/json");
+        }
+    }
+
     private static File newFolder(File root, String... subDirs) throws IOException {
         String subFolder = String.join("/", subDirs);
         File result = new File(root, subFolder);
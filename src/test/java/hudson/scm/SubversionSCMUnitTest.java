@@ -52,6 +52,20 @@ class SubversionSCMUnitTest {
         assertEquals(expected, resolvedRoot.getRemote());
     }
 
+    @Test
+    void disjointLocalDirectories() {
+        assertThat(SubversionSCM.areDisjoint(new ModuleLocation[]{
+                new ModuleLocation("https://svn/a", "a"), new ModuleLocation("https://svn/b", "./b/")}), is(true));
+        assertThat(SubversionSCM.areDisjoint(new ModuleLocation[]{
+                new ModuleLocation("https://svn/a", "ab"), new ModuleLocation("https://svn/b", "a/b")}), is(true));
+        assertThat(SubversionSCM.areDisjoint(new ModuleLocation[]{
+                new ModuleLocation("https://svn/a", "a"), new ModuleLocation("https://svn/b", "a/b")}), is(false));
+        assertThat(SubversionSCM.areDisjoint(new ModuleLocation[]{
+                new ModuleLocation("https://svn/a", "."), new ModuleLocation("https://svn/b", "b")}), is(false));
+        assertThat(SubversionSCM.areDisjoint(new ModuleLocation[]{
+                new ModuleLocation("https://svn/a", "a"), new ModuleLocation("https://svn/b", "a")}), is(false));
+    }
+
     @Test
     @Disabled("weird mockito issue, only occurs when running whole test suite, test class or method both pass")
     void shouldSetEnvironmentVariablesWithSingleSvnModule() throws IOException {
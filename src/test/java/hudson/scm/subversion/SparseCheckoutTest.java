@@ -0,0 +1,43 @@
+package hudson.scm.subversion;
+
+import org.junit.jupiter.api.Test;
+import org.tmatesoft.svn.core.SVNURL;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SparseCheckoutTest {
+
+    @Test
+    void literalPrefix() {
+        assertEquals("/trunk/myapp/c/library1/", SparseCheckout.literalPrefix("/trunk/myapp/c/library1/.*"));
+        assertEquals("/trunk/my.app/", SparseCheckout.literalPrefix("^/trunk/my\\.app/.*\\.html"));
+        assertEquals("/trunk/li", SparseCheckout.literalPrefix("/trunk/lib?/.*"));
+        assertEquals("/trunk/", SparseCheckout.literalPrefix("/trunk/\\w+/src/.*"));
+        assertEquals("", SparseCheckout.literalPrefix("/trunk/a/.*|/trunk/b/.*"));
+        assertEquals("", SparseCheckout.literalPrefix(".*/src/.*"));
+    }
+
+    @Test
+    void fromIncludedRegions() {
+        assertEquals(Arrays.asList("/trunk/myapp/c/library1", "/trunk/myapp/c/library2", "/trunk/myapp", ""),
+                SparseCheckout.fromIncludedRegions("/trunk/myapp/c/library1/.*", " /trunk/myapp/c/library2/.* ",
+                        "/trunk/myapp/lib.*", ".*\\.html", "").getDirectories());
+    }
+
+    @Test
+    void resolve() throws Exception {
+        SVNURL root = SVNURL.parseURIEncoded("https://svn.example.com/repo");
+        SVNURL trunk = root.appendPath("trunk/myapp", false);
+        SparseCheckout shape = SparseCheckout.of("/trunk/myapp/c/library2", "trunk/myapp/c/library1/",
+                "/trunk/myapp/c/library1/src", "/branches/stable/c");
+        assertEquals(Arrays.asList("c/library1", "c/library2"), shape.resolve(trunk, root));
+        assertEquals(Collections.emptyList(), shape.resolve(root.appendPath("tags/1.0", false), root));
+        assertNull(SparseCheckout.of("/trunk").resolve(trunk, root));
+        assertNull(SparseCheckout.of("/trunk/myapp").resolve(trunk, root));
+        assertNull(SparseCheckout.fromIncludedRegions(".*").resolve(trunk, root));
+    }
+}
@@ -0,0 +1,104 @@
+package jenkins.scm.impl.subversion;
+
+import org.junit.jupiter.api.Test;
+import org.tmatesoft.svn.core.SVNNodeKind;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class NodeEntrySerializerTest {
+
+    @Test
+    void roundTrip() throws Exception {
+        SVNRepositoryView.NodeEntry entry = new SVNRepositoryView.NodeEntry(42, SVNNodeKind.DIR,
+                new SVNRepositoryView.ChildEntry[] {
+                        new SVNRepositoryView.ChildEntry(40, 1500000000000L, SVNNodeKind.DIR, "release-1.0"),
+                        new SVNRepositoryView.ChildEntry(12, 1400000000000L, SVNNodeKind.DIR, "release-1.1"),
+                        new SVNRepositoryView.ChildEntry(41, 1500000001000L, SVNNodeKind.FILE, "résumé"),
+                        new SVNRepositoryView.ChildEntry(41, 1500000001000L, SVNNodeKind.FILE, "règle"),
+                        new SVNRepositoryView.ChildEntry(0, 0, SVNNodeKind.UNKNOWN, ""),
+                });
+        SVNRepositoryView.NodeEntry copy = decode(encode(entry));
+        assertEquals(42, copy.getRevision());
+        assertEquals(SVNNodeKind.DIR, copy.getType());
+        assertEquals(entry.getChildren().length, copy.getChildren().length);
+        for (int i = 0; i < entry.getChildren().length; i++) {
+            SVNRepositoryView.ChildEntry expected = entry.getChildren()[i];
+            SVNRepositoryView.ChildEntry actual = copy.getChildren()[i];
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getRevision(), actual.getRevision());
+            assertEquals(expected.getLastModified(), actual.getLastModified());
+            assertEquals(expected.getType(), actual.getType());
+        }
+    }
+
+    @Test
+    void roundTripWithoutChildren() throws Exception {
+        SVNRepositoryView.NodeEntry copy = decode(encode(new SVNRepositoryView.NodeEntry(-1, SVNNodeKind.NONE, null)));
+        assertEquals(-1, copy.getRevision());
+        assertEquals(SVNNodeKind.NONE, copy.getType());
+        assertNull(copy.getChildren());
+    }
+
+    /**
+     * Checks that a {@code tags/} like directory takes a fraction of the space Java serialization, used before, took.
+     */
+    @Test
+    void largeDirectory() throws Exception {
+        SVNRepositoryView.ChildEntry[] children = new SVNRepositoryView.ChildEntry[20000];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = new SVNRepositoryView.ChildEntry(1000 + i * 3, 1500000000000L + i * 60000L,
+                    SVNNodeKind.DIR, String.format("release-%d.%d.%d", i / 1000, (i / 10) % 100, i % 10));
+        }
+        SVNRepositoryView.NodeEntry entry = new SVNRepositoryView.NodeEntry(70000, SVNNodeKind.DIR, children);
+
+        byte[] compact = encode(entry);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(entry);
+        }
+        byte[] serialized = bytes.toByteArray();
+        assertThat(compact.length * 4, lessThan(serialized.length));
+        assertEquals(entry.getChildren().length, decode(compact).getChildren().length);
+    }
+
+    /**
+     * Checks that damaged counts and name lengths are reported as corruption, which the cache turns into a miss,
+     * rather than allocating whatever they claim.
+     */
+    @Test
+    void damagedEntry() throws Exception {
+        // version 1, revision 5, a directory, then a child count of 2^31 - 2
+        assertThrows(StreamCorruptedException.class,
+                () -> decode(new byte[] {1, 10, 2, (byte) 0xFE, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F}));
+        // a negative child count
+        assertThrows(StreamCorruptedException.class, () -> decode(new byte[] {1, 10, 2, 1}));
+        // one child whose name shares 3 bytes with the previous one, which does not exist
+        assertThrows(StreamCorruptedException.class, () -> decode(new byte[] {1, 10, 2, 4, 1, 2, 2, 6, 2, 'a'}));
+    }
+
+    private static byte[] encode(SVNRepositoryView.NodeEntry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            NodeEntrySerializer.INSTANCE.serialize(out, entry);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static SVNRepositoryView.NodeEntry decode(byte[] bytes) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            return NodeEntrySerializer.INSTANCE.deserialize(in, bytes.length);
+        }
+    }
+}
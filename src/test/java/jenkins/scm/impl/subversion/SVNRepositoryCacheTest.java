@@ -0,0 +1,204 @@
+package jenkins.scm.impl.subversion;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tmatesoft.svn.core.SVNNodeKind;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SVNRepositoryCacheTest {
+
+    private static final SVNRepositoryView.NodeEntry ENTRY = new SVNRepositoryView.NodeEntry(42, SVNNodeKind.DIR,
+            new SVNRepositoryView.ChildEntry[] {
+                    new SVNRepositoryView.ChildEntry(40, 1500000000000L, SVNNodeKind.DIR, "branches"),
+                    new SVNRepositoryView.ChildEntry(41, 1500000001000L, SVNNodeKind.DIR, "tags"),
+                    new SVNRepositoryView.ChildEntry(42, 1500000002000L, SVNNodeKind.DIR, "trunk"),
+            });
+
+    @TempDir
+    private File dir;
+
+    private final SVNRepositoryCacheMetrics metrics = SVNRepositoryCacheMetrics.get();
+    private long now = TimeUnit.DAYS.toMillis(20000);
+    private int commitBatchSize;
+    private long commitInterval;
+    private long maxSize;
+    private LongSupplier clock;
+
+    @BeforeEach
+    void setUp() {
+        commitBatchSize = SVNRepositoryCache.COMMIT_BATCH_SIZE;
+        commitInterval = SVNRepositoryCache.COMMIT_INTERVAL;
+        maxSize = SVNRepositoryCache.MAX_SIZE;
+        clock = SVNRepositoryCache.CLOCK;
+        SVNRepositoryCache.CLOCK = () -> now;
+    }
+
+    @AfterEach
+    void tearDown() {
+        SVNRepositoryCache.COMMIT_BATCH_SIZE = commitBatchSize;
+        SVNRepositoryCache.COMMIT_INTERVAL = commitInterval;
+        SVNRepositoryCache.MAX_SIZE = maxSize;
+        SVNRepositoryCache.CLOCK = clock;
+    }
+
+    @Test
+    void commitsInBatches() throws Exception {
+        SVNRepositoryCache.COMMIT_BATCH_SIZE = 3;
+        SVNRepositoryCache.COMMIT_INTERVAL = TimeUnit.SECONDS.toMillis(30);
+        SVNRepositoryCache cache = SVNRepositoryCache.acquire(new File(dir, "svn-batch.db"));
+        try {
+            SVNRepositoryCache.Store<SVNRepositoryView.NodeEntry> nodes = cache.getNodes(null);
+            long commits = metrics.getCommits();
+            nodes.put("a@1", ENTRY);
+            nodes.put("b@1", ENTRY);
+            assertEquals(commits, metrics.getCommits());
+            nodes.put("c@1", ENTRY);
+            assertEquals(commits + 1, metrics.getCommits());
+
+            nodes.put("d@1", ENTRY);
+            SVNRepositoryCache.commitExpired();
+            assertEquals(commits + 1, metrics.getCommits());
+            now += SVNRepositoryCache.COMMIT_INTERVAL;
+            SVNRepositoryCache.commitExpired();
+            assertEquals(commits + 2, metrics.getCommits());
+
+            // reads are recorded with the next commit, they do not make one on their own
+            for (int i = 0; i < 2; i++) {
+                assertNotNull(nodes.get("a@1"));
+                assertNotNull(nodes.get("b@1"));
+            }
+            assertEquals(commits + 2, metrics.getCommits());
+            nodes.put("e@1", ENTRY);
+            cache.release();
+            cache = null;
+            assertEquals(commits + 3, metrics.getCommits());
+        } finally {
+            if (cache != null) {
+                cache.release();
+            }
+        }
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() throws Exception {
+        SVNRepositoryCache cache = SVNRepositoryCache.acquire(new File(dir, "svn-lru.db"));
+        try {
+            SVNRepositoryCache.Store<SVNRepositoryView.NodeEntry> nodes = cache.getNodes(null);
+            long size = nodes.measure("a@1", ENTRY);
+            SVNRepositoryCache.MAX_SIZE = size * 7 / 2;
+            long evictions = metrics.getEvictions();
+            nodes.put("a@1", ENTRY);
+            now += TimeUnit.HOURS.toMillis(1);
+            nodes.put("b@1", ENTRY);
+            now += TimeUnit.HOURS.toMillis(1);
+            nodes.put("c@1", ENTRY);
+            now += TimeUnit.HOURS.toMillis(1);
+            assertNotNull(nodes.get("a@1"));
+            assertEquals(3 * size, cache.bytes());
+
+            now += TimeUnit.HOURS.toMillis(1);
+            nodes.put("d@1", ENTRY);
+            assertEquals(evictions + 1, metrics.getEvictions());
+            assertEquals(3, cache.size());
+            assertEquals(3 * size, cache.bytes());
+            assertNull(nodes.get("b@1"));
+            assertNotNull(nodes.get("a@1"));
+            assertNotNull(nodes.get("c@1"));
+            assertNotNull(nodes.get("d@1"));
+        } finally {
+            cache.release();
+        }
+    }
+
+    @Test
+    void keepsUsageAcrossReopening() throws Exception {
+        File file = new File(dir, "svn-reopen.db");
+        SVNRepositoryCache cache = SVNRepositoryCache.acquire(file);
+        long size;
+        try {
+            SVNRepositoryCache.Store<SVNRepositoryView.NodeEntry> nodes = cache.getNodes(null);
+            size = nodes.measure("a@1", ENTRY);
+            nodes.put("a@1", ENTRY);
+            now += TimeUnit.HOURS.toMillis(1);
+            nodes.put("b@1", ENTRY);
+            now += TimeUnit.HOURS.toMillis(1);
+            assertNotNull(nodes.get("a@1"));
+        } finally {
+            cache.release();
+        }
+        assertTrue(cache.isClosed());
+
+        now += TimeUnit.HOURS.toMillis(1);
+        SVNRepositoryCache.MAX_SIZE = size * 3 / 2;
+        cache = SVNRepositoryCache.acquire(file);
+        try {
+            SVNRepositoryCache.Store<SVNRepositoryView.NodeEntry> nodes = cache.getNodes(null);
+            // the file is over the new limit as soon as it is loaded, and a@1 was read after b@1 was written
+            assertEquals(1, cache.size());
+            assertEquals(size, cache.bytes());
+            assertNull(nodes.get("b@1"));
+            assertNotNull(nodes.get("a@1"));
+        } finally {
+            cache.release();
+        }
+    }
+
+    @Test
+    void compaction() throws Exception {
+        File file = new File(dir, "svn-compact.db");
+        SVNRepositoryCache cache = SVNRepositoryCache.acquire(file);
+        try {
+            SVNRepositoryCache.Store<SVNRepositoryView.NodeEntry> nodes = cache.getNodes(null);
+            for (int i = 0; i < 2000; i++) {
+                nodes.put("prj/trunk/" + i + "@1", ENTRY);
+            }
+            cache.commit();
+            long before = SVNRepositoryCache.sizeOf(file);
+            SVNRepositoryCache.MAX_SIZE = nodes.measure("prj/trunk/0@1", ENTRY) * 10;
+            now += TimeUnit.HOURS.toMillis(1);
+            nodes.put("prj/trunk@1", ENTRY);
+            assertThat(cache.size(), lessThan(10));
+
+            long compactions = metrics.getCompactions();
+            cache.compact();
+            assertEquals(compactions + 1, metrics.getCompactions());
+            assertThat(SVNRepositoryCache.sizeOf(file), lessThan(before));
+            assertNotNull(nodes.get("prj/trunk@1"));
+        } finally {
+            cache.release();
+        }
+    }
+
+    @Test
+    void corruptFileIsMovedAside() throws Exception {
+        File file = new File(dir, "svn-corrupt.db");
+        byte[] garbage = "not a cache file\n".repeat(512).getBytes(StandardCharsets.US_ASCII);
+        Files.write(file.toPath(), garbage);
+        long corruptions = metrics.getCorruptions();
+        SVNRepositoryCache cache = SVNRepositoryCache.acquire(file);
+        try {
+            assertEquals(corruptions + 1, metrics.getCorruptions());
+            assertArrayEquals(garbage, Files.readAllBytes(new File(dir, "corrupt/svn-corrupt.db").toPath()));
+            SVNRepositoryCache.Store<SVNRepositoryView.NodeEntry> nodes = cache.getNodes(null);
+            nodes.put("a@1", ENTRY);
+            assertNotNull(nodes.get("a@1"));
+        } finally {
+            cache.release();
+        }
+    }
+}
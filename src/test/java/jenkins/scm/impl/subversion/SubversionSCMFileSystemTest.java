@@ -5,22 +5,33 @@ import jenkins.scm.api.SCMFileSystem;
 import jenkins.scm.api.SCMHead;
 import jenkins.scm.api.SCMRevision;
 import jenkins.scm.api.SCMSource;
+import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.jvnet.hudson.test.JenkinsRule;
 import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+import org.tmatesoft.svn.core.SVNNodeKind;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
 
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 import java.util.Set;
 import java.util.TreeSet;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.emptyArray;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -114,6 +125,13 @@ class SubversionSCMFileSystemTest {
             lastModified = file.lastModified();
             assertThat(lastModified, greaterThanOrEqualTo(currentTime));
             assertThat(lastModified, lessThanOrEqualTo(currentTime + oneMinute));
+            for (SCMFile listed : fs.getRoot().children()) {
+                if (listed.getName().equals("file")) {
+                    // carried over from the listing
+                    assertThat(listed.lastModified(), is(lastModified));
+                    assertThat(listed.isFile(), is(true));
+                }
+            }
         }
     }
 
@@ -192,6 +210,154 @@ class SubversionSCMFileSystemTest {
         }
     }
 
+    @Test
+    void bulkExport() throws Exception {
+        sampleRepo.init();
+        sampleRepo.write("vars/step.groovy", "def call() {}");
+        sampleRepo.write("src/org/example/Util.groovy", "package org.example");
+        sampleRepo.svnkit("add", sampleRepo.wc() + "/vars", sampleRepo.wc() + "/src");
+        sampleRepo.svnkit("commit", "--message=library", sampleRepo.wc());
+        SCMSource source = new SubversionSCMSource(null, sampleRepo.prjUrl());
+        boolean bulkExport = SubversionSCMFileSystem.BULK_EXPORT;
+        SubversionSCMFileSystem.BULK_EXPORT = true;
+        try {
+            try (SCMFileSystem fs = SCMFileSystem.of(source, new SCMHead("trunk"))) {
+                // exports the whole tree
+                assertThat(names(fs.getRoot()), containsInAnyOrder(is("file"), is("vars"), is("src")));
+                long misses = SVNRepositoryCacheMetrics.get().getMisses();
+                long contentMisses = SVNRepositoryCacheMetrics.get().getContent().getMisses();
+                assertLibrary(fs.getRoot());
+                assertThat(SVNRepositoryCacheMetrics.get().getMisses(), is(misses));
+                assertThat(SVNRepositoryCacheMetrics.get().getContent().getMisses(), is(contentMisses));
+            }
+            // a commit elsewhere leaves the tree as it was exported
+            sampleRepo.svnkit("copy", "--message=branching", sampleRepo.trunkUrl(), sampleRepo.branchesUrl() + "/dev");
+            long misses = SVNRepositoryCacheMetrics.get().getMisses();
+            try (SCMFileSystem fs = SCMFileSystem.of(source, new SCMHead("trunk"))) {
+                assertThat(names(fs.getRoot()), containsInAnyOrder(is("file"), is("vars"), is("src")));
+                assertLibrary(fs.getRoot());
+            }
+            assertThat(SVNRepositoryCacheMetrics.get().getMisses(), is(misses));
+        } finally {
+            SubversionSCMFileSystem.BULK_EXPORT = bulkExport;
+        }
+    }
+
+    private static Set<String> names(SCMFile dir) throws Exception {
+        Set<String> names = new TreeSet<>();
+        for (SCMFile f : dir.children()) {
+            names.add(f.getName());
+        }
+        return names;
+    }
+
+    private static void assertLibrary(SCMFile root) throws Exception {
+        SCMFile util = root.child("src").child("org").child("example").child("Util.groovy");
+        SCMFile step = null;
+        for (SCMFile f : root.child("vars").children()) {
+            step = f;
+        }
+        assertThat(step.getName(), is("step.groovy"));
+        assertThat(step.contentAsString(), is("def call() {}"));
+        assertThat(util.contentAsString(), is("package org.example"));
+    }
+
+    @Test
+    void pinnedRevision() throws Exception {
+        sampleRepo.init();
+        SCMSource source = new SubversionSCMSource(null, sampleRepo.prjUrl());
+        SCMRevision head = source.fetch(new SCMHead("trunk"), null);
+        try (SCMFileSystem fs = SCMFileSystem.of(source, new SCMHead("trunk"))) {
+            assertThat(fs.getRevision(), is(head));
+            sampleRepo.write("file", "modified");
+            sampleRepo.svnkit("commit", "--message=modified", sampleRepo.wc());
+            // still reading the revision HEAD resolved to when the file system was built
+            assertThat(fs.getRoot().child("file").contentAsString(), is(""));
+            assertThat(fs.getRevision(), is(head));
+        }
+    }
+
+    @Test
+    void largeContent() throws Exception {
+        sampleRepo.init();
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            content.append("line ").append(i).append('\n');
+        }
+        sampleRepo.write("file", content.toString());
+        sampleRepo.svnkit("commit", "--message=large", sampleRepo.wc());
+        int threshold = SubversionSCMFile.CONTENT_MEMORY_THRESHOLD;
+        long maxSize = SVNContentCache.MAX_SIZE;
+        SubversionSCMFile.CONTENT_MEMORY_THRESHOLD = 100;
+        SVNContentCache.MAX_SIZE = 0;
+        SCMSource source = new SubversionSCMSource(null, sampleRepo.prjUrl());
+        try (SCMFileSystem fs = SCMFileSystem.of(source, new SCMHead("trunk"))) {
+            assertThat(fs.getRoot().child("file").contentAsString(), is(content.toString()));
+        } finally {
+            SubversionSCMFile.CONTENT_MEMORY_THRESHOLD = threshold;
+            SVNContentCache.MAX_SIZE = maxSize;
+        }
+    }
+
+    @Test
+    void cachedContent() throws Exception {
+        sampleRepo.init();
+        sampleRepo.write("file", "cached");
+        sampleRepo.svnkit("commit", "--message=cached", sampleRepo.wc());
+        SCMSource source = new SubversionSCMSource(null, sampleRepo.prjUrl());
+        try (SCMFileSystem fs = SCMFileSystem.of(source, new SCMHead("trunk"))) {
+            assertThat(fs.getRoot().child("file").contentAsString(), is("cached"));
+        }
+        long hits = SVNRepositoryCacheMetrics.get().getContent().getHits();
+        try (SCMFileSystem fs = SCMFileSystem.of(source, new SCMHead("trunk"))) {
+            assertThat(fs.getRoot().child("file").contentAsString(), is("cached"));
+        }
+        assertThat(SVNRepositoryCacheMetrics.get().getContent().getHits(), greaterThan(hits));
+        String[] entries = SVNContentCache.getCacheDir().list((dir, name) -> name.endsWith(".content"));
+        assertThat(entries, is(not(emptyArray())));
+    }
+
+    @Test
+    void cachedContentKeyedByCredentials() throws Exception {
+        try (InputStream in = SVNContentCache.put("uuid", "alice", "prj/trunk/secret", 1,
+                out -> out.write("secret".getBytes(StandardCharsets.UTF_8)))) {
+            assertThat(IOUtils.toString(in, StandardCharsets.UTF_8), is("secret"));
+        }
+        assertThat(SVNContentCache.get("uuid", "bob", "prj/trunk/secret", 1), is(nullValue()));
+        assertThat(SVNContentCache.get("uuid", null, "prj/trunk/secret", 1), is(nullValue()));
+        try (InputStream in = SVNContentCache.get("uuid", "alice", "prj/trunk/secret", 1)) {
+            assertThat(in, is(notNullValue()));
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    void callerSession() throws Exception {
+        sampleRepo.init();
+        sampleRepo.write("file", "caller");
+        sampleRepo.svnkit("commit", "--message=caller", sampleRepo.wc());
+        SVNRepository repository = SVNRepositoryFactory.create(SVNURL.parseURIEncoded(sampleRepo.trunkUrl()));
+        try {
+            try (SubversionSCMFileSystem fs = new SubversionSCMFileSystem(repository, null)) {
+                assertThat(fs.getRoot().child("file").contentAsString(), is("caller"));
+                assertThat(fs.getRevision().getRevision(), is(repository.getLatestRevision()));
+            }
+            // still the caller's to use
+            assertThat(repository.checkPath("file", -1), is(SVNNodeKind.FILE));
+        } finally {
+            repository.closeSession();
+        }
+        // the head of the repository root still has a name
+        repository = SVNRepositoryFactory.create(SVNURL.parseURIEncoded(sampleRepo.rootUrl()));
+        try {
+            try (SubversionSCMFileSystem fs = new SubversionSCMFileSystem(repository, null)) {
+                assertThat(fs.getRevision().getHead().getName(), is(repository.getLocation().toString()));
+            }
+        } finally {
+            repository.closeSession();
+        }
+    }
+
     private boolean isWindows() {
         return java.io.File.pathSeparatorChar == ';';
     }
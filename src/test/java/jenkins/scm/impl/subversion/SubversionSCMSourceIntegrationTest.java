@@ -23,6 +23,8 @@
  */
 package jenkins.scm.impl.subversion;
 
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.impl.UsernamePasswordCredentialsImpl;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.FilePath;
@@ -35,8 +37,10 @@ import hudson.scm.subversion.CheckoutUpdater;
 import hudson.util.StreamTaskListener;
 import jenkins.branch.BranchSource;
 import jenkins.scm.api.SCMHead;
+import jenkins.scm.api.SCMHeadObserver;
 import jenkins.scm.api.SCMRevision;
 import jenkins.scm.api.SCMSource;
+import jenkins.scm.api.SCMSourceCriteria;
 import org.jenkinsci.plugins.workflow.multibranch.WorkflowMultiBranchProject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -44,15 +48,25 @@ import org.junit.jupiter.api.extension.RegisterExtension;
 import org.jvnet.hudson.test.Issue;
 import org.jvnet.hudson.test.JenkinsRule;
 import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+import org.tmatesoft.svn.core.SVNNodeKind;
+import org.tmatesoft.svn.core.SVNURL;
 
+import java.io.IOException;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasItems;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @WithJenkins
 class SubversionSCMSourceIntegrationTest {
@@ -122,6 +136,288 @@ class SubversionSCMSourceIntegrationTest {
         assertThat(source.fetchRevisions(listener), hasItems("trunk", "branches/dev", "tags/dev-1"));
     }
 
+    @Test
+    void retrieveInParallel() throws Exception {
+        sampleRepo.init();
+        for (String branch : new String[] {"a", "b", "c", "d", "e"}) {
+            sampleRepo.svnkit("copy", "--message=branching", sampleRepo.trunkUrl(), sampleRepo.branchesUrl() + "/" + branch);
+        }
+        sampleRepo.svnkit("copy", "--message=tagging", sampleRepo.trunkUrl(), sampleRepo.tagsUrl() + "/v1");
+        SCMSource source = new SubversionSCMSource(null, sampleRepo.prjUrl());
+        TaskListener listener = StreamTaskListener.fromStdout();
+        int parallelism = SubversionSCMSource.FETCH_PARALLELISM;
+        SubversionSCMSource.FETCH_PARALLELISM = 3;
+        try {
+            assertEquals("[SCMHead{'branches/a'}, SCMHead{'branches/b'}, SCMHead{'branches/c'}, SCMHead{'branches/d'}, "
+                    + "SCMHead{'branches/e'}, SCMHead{'tags/v1'}, SCMHead{'trunk'}]", source.fetch(listener).toString());
+        } finally {
+            SubversionSCMSource.FETCH_PARALLELISM = parallelism;
+        }
+    }
+
+    @Test
+    void retrieveIncrementally() throws Exception {
+        sampleRepo.init();
+        sampleRepo.svnkit("copy", "--message=branching", sampleRepo.trunkUrl(), sampleRepo.branchesUrl() + "/dev");
+        SCMSource source = new SubversionSCMSource(null, sampleRepo.prjUrl());
+        TaskListener listener = StreamTaskListener.fromStdout();
+        assertEquals("[SCMHead{'branches/dev'}, SCMHead{'trunk'}]", source.fetch(listener).toString());
+        // nothing changed
+        assertEquals("[SCMHead{'branches/dev'}, SCMHead{'trunk'}]", source.fetch(listener).toString());
+        sampleRepo.svnkit("copy", "--message=branching", sampleRepo.trunkUrl(), sampleRepo.branchesUrl() + "/feature");
+        sampleRepo.svnkit("delete", "--message=removing", sampleRepo.branchesUrl() + "/dev");
+        assertEquals("[SCMHead{'branches/feature'}, SCMHead{'trunk'}]", source.fetch(listener).toString());
+        sampleRepo.write("file", "changed");
+        sampleRepo.svnkit("commit", "--message=changed", sampleRepo.wc());
+        long trunk = sampleRepo.revision();
+        Map<SCMHead, SCMRevision> result = source.fetch(SCMHeadObserver.collect(), listener).result();
+        assertEquals(new SubversionSCMSource.SCMRevisionImpl(new SCMHead("trunk"), trunk), result.get(new SCMHead("trunk")));
+        assertEquals(2, result.size());
+    }
+
+    @Test
+    void retrieveIncrementallyWithReconfiguredCriteria() throws Exception {
+        sampleRepo.init();
+        sampleRepo.svnkit("copy", "--message=branching", sampleRepo.trunkUrl(), sampleRepo.branchesUrl() + "/dev");
+        SCMSource source = new SubversionSCMSource(null, sampleRepo.prjUrl());
+        TaskListener listener = StreamTaskListener.fromStdout();
+        assertEquals(2, source.fetch(new FileCriteria("file"), SCMHeadObserver.collect(), listener).result().size());
+        // criteria of the same class looking for something else do not reuse the heads found by the others
+        assertEquals(0, source.fetch(new FileCriteria("missing"), SCMHeadObserver.collect(), listener).result().size());
+        assertEquals(2, source.fetch(new FileCriteria("file"), SCMHeadObserver.collect(), listener).result().size());
+    }
+
+    private static final class FileCriteria implements SCMSourceCriteria {
+        private static final long serialVersionUID = 1L;
+        private final String path;
+
+        FileCriteria(String path) {
+            this.path = path;
+        }
+
+        @Override
+        public boolean isHead(@NonNull Probe probe, @NonNull TaskListener listener) throws IOException {
+            return probe.exists(path);
+        }
+    }
+
+    @Test
+    void reuseRepositoryView() throws Exception {
+        sampleRepo.init();
+        SVNURL url = SVNURL.parseURIEncoded(sampleRepo.prjUrl());
+        SVNRepositoryView view = SVNRepositoryView.open(url, null);
+        view.release();
+        assertSame(view, SVNRepositoryView.open(url, null));
+        SVNRepositoryView fork = view.fork();
+        assertNotSame(view, fork);
+        fork.close();
+        // the cache is shared, closing one view leaves it open for the other
+        assertFalse(view.isClosed());
+        view.release();
+        SVNRepositoryView.closeIdle(true);
+        assertTrue(view.isClosed());
+        SVNRepositoryView reopened = SVNRepositoryView.open(url, null);
+        assertNotSame(view, reopened);
+        reopened.close();
+    }
+
+    @Test
+    void reuseRepositoryViewByCredentials() throws Exception {
+        sampleRepo.init();
+        SVNURL url = SVNURL.parseURIEncoded(sampleRepo.prjUrl());
+        SVNRepositoryView view = SVNRepositoryView.open(url,
+                new UsernamePasswordCredentialsImpl(CredentialsScope.GLOBAL, "creds", null, "alice", "secret"));
+        view.release();
+        // another lookup of the same credentials
+        SVNRepositoryView same = SVNRepositoryView.open(url,
+                new UsernamePasswordCredentialsImpl(CredentialsScope.GLOBAL, "creds", null, "alice", "secret"));
+        assertSame(view, same);
+        same.release();
+        // the credentials were updated
+        SVNRepositoryView updated = SVNRepositoryView.open(url,
+                new UsernamePasswordCredentialsImpl(CredentialsScope.GLOBAL, "creds", null, "alice", "changed"));
+        assertNotSame(view, updated);
+        assertTrue(view.isClosed());
+        // a session that failed is closed rather than re-used
+        updated.invalidate();
+        updated.release();
+        assertTrue(updated.isClosed());
+    }
+
+    @Test
+    void resolveHead() throws Exception {
+        sampleRepo.init();
+        long initial = sampleRepo.revision();
+        SVNRepositoryView view = SVNRepositoryView.open(SVNURL.parseURIEncoded(sampleRepo.prjUrl()), null);
+        try {
+            assertEquals(initial, view.getNode("prj/trunk", -1).getRevision());
+            sampleRepo.write("added", "content");
+            sampleRepo.svnkit("add", sampleRepo.wc() + "/added");
+            sampleRepo.svnkit("commit", "--message=added", sampleRepo.wc());
+            long latest = sampleRepo.revision();
+            SVNRepositoryView.NodeEntry head = view.getNode("prj/trunk", -1);
+            assertEquals(latest, head.getRevision());
+            assertEquals(2, head.getChildren().length);
+            // historical revisions are immutable
+            assertEquals(1, view.getNode("prj/trunk", initial).getChildren().length);
+            assertEquals(SVNNodeKind.NONE, view.checkPath("prj/trunk/added", initial));
+            assertEquals(SVNNodeKind.FILE, view.checkPath("prj/trunk/added", -1));
+            assertEquals(SVNNodeKind.NONE, view.getNode("prj/nonexistent", -1).getType());
+        } finally {
+            view.release();
+        }
+    }
+
+    @Test
+    void retrieveAfterMove() throws Exception {
+        sampleRepo.init();
+        sampleRepo.svnkit("copy", "--message=branching", sampleRepo.trunkUrl(), sampleRepo.branchesUrl() + "/dev");
+        long branched = sampleRepo.revision();
+        String renamedUrl = sampleRepo.rootUrl() + "/renamed";
+        sampleRepo.svnkit("move", "--message=renaming", sampleRepo.prjUrl(), renamedUrl);
+        SVNRepositoryView view = SVNRepositoryView.open(SVNURL.parseURIEncoded(renamedUrl), null);
+        try {
+            // the moved directories last changed before they were at their current path
+            assertEquals(SVNNodeKind.NONE, view.checkPath("renamed/branches", branched));
+            SVNRepositoryView.NodeEntry branches = view.getNode("renamed/branches", -1);
+            assertEquals(SVNNodeKind.DIR, branches.getType());
+            assertEquals(1, branches.getChildren().length);
+            assertEquals(SVNNodeKind.FILE, view.checkPath("renamed/branches/dev/file", -1));
+            // nor does the listing at HEAD, cached by that revision, make them exist there
+            assertEquals(SVNNodeKind.NONE, view.checkPath("renamed/branches", branched));
+        } finally {
+            view.release();
+        }
+        SCMSource source = new SubversionSCMSource(null, renamedUrl);
+        TaskListener listener = StreamTaskListener.fromStdout();
+        assertEquals("[SCMHead{'branches/dev'}, SCMHead{'trunk'}]", source.fetch(listener).toString());
+        assertEquals(Collections.singleton(new SCMHead("branches/dev")),
+                source.fetch((probe, l) -> probe.exists("file"),
+                        SCMHeadObserver.filter(SCMHeadObserver.collect(), new SCMHead("branches/dev")), listener)
+                        .unwrap().result().keySet());
+    }
+
+    @Test
+    void boundedCache() throws Exception {
+        sampleRepo.init();
+        long maxSize = SVNRepositoryCache.MAX_SIZE;
+        // too small for any entry
+        SVNRepositoryCache.MAX_SIZE = 1;
+        try {
+            SVNRepositoryCacheMetrics metrics = SVNRepositoryCacheMetrics.get();
+            long evictions = metrics.getEvictions();
+            SVNRepositoryView view = SVNRepositoryView.open(SVNURL.parseURIEncoded(sampleRepo.prjUrl()), null);
+            try {
+                long hits = metrics.getHits();
+                view.getNode("prj/trunk", 1);
+                assertEquals(evictions + 1, metrics.getEvictions());
+                view.getNode("prj/trunk", 1);
+                assertEquals(hits, metrics.getHits());
+                SVNRepositoryCache.compactAll();
+                assertEquals(0, metrics.getFiles().get(0).getEntries());
+                assertEquals(0, metrics.getFiles().get(0).getBytes());
+            } finally {
+                view.close();
+            }
+        } finally {
+            SVNRepositoryCache.MAX_SIZE = maxSize;
+        }
+    }
+
+    @Test
+    void probeCriteria() throws Exception {
+        sampleRepo.init();
+        sampleRepo.svnkit("mkdir", "--parents", "--message=sub", sampleRepo.trunkUrl() + "/sub/dir");
+        sampleRepo.svnkit("copy", "--message=branching", sampleRepo.trunkUrl(), sampleRepo.branchesUrl() + "/dev");
+        sampleRepo.svnkit("delete", "--message=removing", sampleRepo.trunkUrl() + "/sub/dir");
+        SCMSource source = new SubversionSCMSource(null, sampleRepo.prjUrl());
+        TaskListener listener = StreamTaskListener.fromStdout();
+        assertEquals(Collections.singleton(new SCMHead("branches/dev")),
+                source.fetch((probe, l) -> probe.exists("sub/dir") && probe.exists("/file")
+                        && !probe.exists("sub/dir/nonexistent") && !probe.exists("file/nonexistent"),
+                        SCMHeadObserver.collect(), listener).result().keySet());
+        assertEquals(2, source.fetch((probe, l) -> probe.exists("sub") && probe.exists("./sub/"),
+                SCMHeadObserver.collect(), listener).result().size());
+    }
+
+    @Test
+    void probeBranchOlderThanRoot() throws Exception {
+        sampleRepo.init();
+        sampleRepo.svnkit("mkdir", "--parents", "--message=sub", sampleRepo.trunkUrl() + "/sub/dir");
+        sampleRepo.svnkit("copy", "--message=branching", sampleRepo.trunkUrl(), sampleRepo.branchesUrl() + "/dev");
+        String renamedUrl = sampleRepo.rootUrl() + "/renamed";
+        sampleRepo.svnkit("move", "--message=renaming", sampleRepo.prjUrl(), renamedUrl);
+        SCMSource source = new SubversionSCMSource(null, renamedUrl);
+        TaskListener listener = StreamTaskListener.fromStdout();
+        SCMHead dev = new SCMHead("branches/dev");
+        // the branch last changed before the project was moved to where it is now
+        Map<SCMHead, SCMRevision> result = source.fetch((probe, l) -> probe.exists("sub/dir") && probe.exists("file")
+                        && !probe.exists("sub/dir/nonexistent") && probe.exists("../dev/file"),
+                SCMHeadObserver.filter(SCMHeadObserver.collect(), dev), listener).unwrap().result();
+        assertEquals(Collections.singletonMap(dev, new SubversionSCMSource.SCMRevisionImpl(dev, -1)), result);
+        assertEquals(result, ((SubversionSCMSource) source).fetchRevisions(Collections.singletonList(dev), listener));
+        assertEquals(result.get(dev), source.fetch(dev, listener));
+    }
+
+    @Test
+    void fetchRevisions() throws Exception {
+        sampleRepo.init();
+        sampleRepo.svnkit("copy", "--message=branching", sampleRepo.trunkUrl(), sampleRepo.branchesUrl() + "/dev");
+        long dev = sampleRepo.revision();
+        sampleRepo.svnkit("copy", "--message=branching", sampleRepo.trunkUrl(), sampleRepo.branchesUrl() + "/feature");
+        long feature = sampleRepo.revision();
+        sampleRepo.write("file", "modified");
+        sampleRepo.svnkit("commit", "--message=modified", sampleRepo.wc());
+        long trunk = sampleRepo.revision();
+        SubversionSCMSource source = new SubversionSCMSource(null, sampleRepo.prjUrl());
+        TaskListener listener = StreamTaskListener.fromStdout();
+        Map<SCMHead, SCMRevision> revisions = source.fetchRevisions(Arrays.asList(new SCMHead("trunk"),
+                new SCMHead("branches/dev"), new SCMHead("branches/feature"), new SCMHead("branches/nonexistent")),
+                listener);
+        assertEquals(3, revisions.size());
+        assertEquals(new SubversionSCMSource.SCMRevisionImpl(new SCMHead("trunk"), trunk),
+                revisions.get(new SCMHead("trunk")));
+        assertEquals(new SubversionSCMSource.SCMRevisionImpl(new SCMHead("branches/dev"), dev),
+                revisions.get(new SCMHead("branches/dev")));
+        assertEquals(new SubversionSCMSource.SCMRevisionImpl(new SCMHead("branches/feature"), feature),
+                revisions.get(new SCMHead("branches/feature")));
+        // the same revisions as an index, and as each head on its own
+        assertEquals(revisions, source.fetch(SCMHeadObserver.collect(), listener).result());
+        for (Map.Entry<SCMHead, SCMRevision> entry : revisions.entrySet()) {
+            assertEquals(entry.getValue(), source.fetch(entry.getKey(), listener));
+        }
+        assertNull(source.fetch(new SCMHead("branches/nonexistent"), listener));
+    }
+
+    @Test
+    void retrieveStaleWhileRevalidating() throws Exception {
+        sampleRepo.init();
+        long tolerance = SubversionSCMSource.STALE_INDEX_TOLERANCE;
+        SubversionSCMSource.STALE_INDEX_TOLERANCE = TimeUnit.HOURS.toMillis(1);
+        try {
+            SCMSource source = new SubversionSCMSource(null, sampleRepo.prjUrl());
+            TaskListener listener = StreamTaskListener.fromStdout();
+            assertEquals("[SCMHead{'trunk'}]", source.fetch(listener).toString());
+            sampleRepo.svnkit("copy", "--message=branching", sampleRepo.trunkUrl(), sampleRepo.branchesUrl() + "/dev");
+            // asking after some heads is always live
+            SCMHead dev = new SCMHead("branches/dev");
+            assertEquals(Collections.singleton(dev),
+                    source.fetch(SCMHeadObserver.filter(SCMHeadObserver.collect(), dev), listener).unwrap().result()
+                            .keySet());
+            // served from the previous index while a fresh one is taken
+            assertEquals("[SCMHead{'trunk'}]", source.fetch(listener).toString());
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+            String heads;
+            do {
+                Thread.sleep(100);
+                heads = source.fetch(listener).toString();
+            } while (!heads.contains("dev") && System.currentTimeMillis() < deadline);
+            assertEquals("[SCMHead{'branches/dev'}, SCMHead{'trunk'}]", heads);
+        } finally {
+            SubversionSCMSource.STALE_INDEX_TOLERANCE = tolerance;
+        }
+    }
+
     private void assertRevision(@CheckForNull SCMRevision rev, @CheckForNull String expectedFile, @NonNull SCMSource source, @NonNull Run<?, ?> run, @NonNull TaskListener listener) throws Exception {
         if (rev == null) {
             assertNull(expectedFile);
@@ -15,7 +15,6 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
-import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -23,6 +22,7 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 /**
  * @author Stephen Connolly
@@ -66,6 +66,34 @@ class SubversionSCMSourceTest {
         return result;
     }
 
+    @Test
+    void branchMatcher() {
+        BranchMatcher matcher = BranchMatcher.compile(
+                SubversionSCMSource.toPaths(SubversionSCMSource.splitCludes("trunk,branches/*,tags/rel-?.*,sandbox/*/*")),
+                SubversionSCMSource.toPaths(SubversionSCMSource.splitCludes("branches/old*,sandbox/*/tmp")));
+        BranchMatcher.State root = matcher.root();
+        assertThat(root.isBranch(), is(false));
+        assertThat(root.hasChildren(), is(true));
+        BranchMatcher.State trunk = root.child("trunk");
+        assertNotNull(trunk);
+        assertThat(trunk.isBranch(), is(true));
+        assertThat(trunk.hasChildren(), is(false));
+        assertNull(root.child("other"));
+        BranchMatcher.State branches = root.child("branches");
+        assertNotNull(branches);
+        assertThat(branches.isBranch(), is(false));
+        assertThat(branches.child("dev").isBranch(), is(true));
+        assertNull(branches.child("old-dev"));
+        BranchMatcher.State tags = root.child("tags");
+        assertThat(tags.child("rel-1.0").isBranch(), is(true));
+        assertNull(tags.child("rel-10.0"));
+        assertNull(tags.child("rel-1-0"));
+        BranchMatcher.State user = root.child("sandbox").child("user");
+        assertThat(user.isBranch(), is(false));
+        assertThat(user.child("feature").isBranch(), is(true));
+        assertNull(user.child("tmp"));
+    }
+
     @Test
     void toPaths() {
         assertThat(SubversionSCMSource.toPaths(SubversionSCMSource.splitCludes("trunk")), is(pathSet(list("trunk"))));
@@ -91,60 +119,6 @@ class SubversionSCMSourceTest {
                 is(pathSet(list("branches", "foo"), list("branches", "bar"))));
     }
 
-    @Test
-    void groupPaths() {
-        SortedMap<List<String>, SortedSet<List<String>>> result;
-        SortedSet<List<String>> data = pathSet(
-                list("trunk"),
-                list("branches", "*"),
-                list("tags", "*"),
-                list("sandbox", "*")
-        );
-        result = SubversionSCMSource.groupPaths(data, Collections.emptyList());
-        assertThat(result.keySet(),
-                is(pathSet(list("trunk"), list("branches"), list("tags"), list("sandbox"))));
-        assertThat(result.get(list("trunk")), is(pathSet(list("trunk"))));
-        assertThat(result.get(list("branches")), is(pathSet(list("branches", "*"))));
-        data = pathSet(
-                list("trunk", "foo", "bar"),
-                list("trunk", "foo", "bas"),
-                list("trunk", "bar", "bas"),
-                list("branches", "foo", "bar", "*"),
-                list("tags", "*"),
-                list("sandbox", "*", "foo", "bar", "*"),
-                list("sandbox", "*", "foo", "bas", "*"),
-                list("sandbox", "*", "bar", "bas", "*")
-        );
-        result = SubversionSCMSource.groupPaths(data, Collections.emptyList());
-        assertThat(result.keySet(),
-                is(pathSet(list("trunk"), list("branches", "foo", "bar"), list("tags"),
-                        list("sandbox"))));
-        result = SubversionSCMSource.groupPaths(result.get(list("sandbox")), list("sandbox", "*"));
-        assertThat(result.keySet(),
-                is(pathSet(list("sandbox", "*", "foo"), list("sandbox", "*", "bar", "bas"))));
-        data = pathSet(
-                list("trunk", "foo", "bar"),
-                list("trunk", "foo", "bas"),
-                list("trunk", "bar", "bas"),
-                list("branches", "foo", "bar", "*"),
-                list("tags", "*"),
-                list("sandbox", "joe-*", "foo", "bar", "*"),
-                list("sandbox", "jim-*", "foo", "bas", "*"),
-                list("sandbox", "*", "bar", "bas", "*")
-        );
-        result = SubversionSCMSource.groupPaths(data, Collections.emptyList());
-        assertThat(result.keySet(),
-                is(pathSet(list("trunk"), list("branches", "foo", "bar"), list("tags"),
-                        list("sandbox"))));
-        assertThat(result.get(list("sandbox")),
-                is((Set<List<String>>) pathSet(list("sandbox", "joe-*", "foo", "bar", "*"),
-                        list("sandbox", "jim-*", "foo", "bas", "*"), list("sandbox", "*", "bar", "bas", "*"))));
-        result = SubversionSCMSource.groupPaths(result.get(list("sandbox")), list("sandbox"));
-        assertThat(result.keySet(), is(pathSet(list("sandbox"))));
-        result = SubversionSCMSource.groupPaths(result.get(list("sandbox")), list("sandbox", "joe-*"));
-        assertThat(result.keySet(), is(pathSet(list("sandbox", "joe-*", "foo", "bar"))));
-    }
-
     @Test
     void startsWith() {
         assertThat(SubversionSCMSource.startsWith(list(), list()), is(true));
@@ -158,42 +132,6 @@ class SubversionSCMSourceTest {
         assertThat(SubversionSCMSource.startsWith(list("a", "b", "c"), list("d")), is(false));
     }
 
-    @Test
-    void wildcardStartsWith() {
-        assertThat(SubversionSCMSource.wildcardStartsWith(list(), list()), is(true));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list()), is(true));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("a")), is(true));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("*")), is(true));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("a", "b")), is(true));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("*", "b")), is(true));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("a", "*")), is(true));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("a", "b", "c")), is(true));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("*", "b", "c")), is(true));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("a", "*", "c")), is(true));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("a", "b", "*")), is(true));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("*", "*", "c")), is(true));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("a", "*", "*")), is(true));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("*", "b", "*")), is(true));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("*", "*", "*")), is(true));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("a", "b", "c", "d")), is(false));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("*", "b", "c", "d")), is(false));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("a", "*", "c", "d")), is(false));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("a", "b", "*", "d")), is(false));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("a", "b", "c", "*")), is(false));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("*", "b", "c", "*")), is(false));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("a", "*", "c", "*")), is(false));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("a", "b", "*", "*")), is(false));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("*", "b", "*", "*")), is(false));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("a", "*", "*", "*")), is(false));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("*", "*", "*", "*")), is(false));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("a", "b", "d")), is(false));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("*", "b", "d")), is(false));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("a", "*", "d")), is(false));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("a", "d")), is(false));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("a", "d")), is(false));
-        assertThat(SubversionSCMSource.wildcardStartsWith(list("a", "b", "c"), list("d")), is(false));
-    }
-
     @Issue("JENKINS-66777")
     @Test
     void scmFromSCMSourceConfiguredWithBrowser() throws Exception {